@@ -0,0 +1,22 @@
+package model;
+
+/**
+ * Fixed positions shared by the benchmarks, as 1-based column sequences (same format as
+ * partie.sequence). None of them is a finished game.
+ */
+public enum BenchPositions {
+    OPENING("5"),
+    MIDGAME("525242258992827611761668"),
+    ENDGAME("525242258992827611761668777889865557451624659748877224894135");
+
+    public final String sequence;
+
+    BenchPositions(String sequence) { this.sequence = sequence; }
+
+    public Game toGame() {
+        Game game = new Game();
+        for (char ch : sequence.toCharArray()) game.drop(ch - '1');
+        if (game.isGameOver()) throw new IllegalStateException(name() + " is a finished game");
+        return game;
+    }
+}
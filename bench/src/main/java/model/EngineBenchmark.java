@@ -0,0 +1,79 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Move application, undo and win detection: Game.drop, BitBoard and the int[][] helpers. */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EngineBenchmark {
+
+    @Param({"OPENING", "MIDGAME", "ENDGAME"})
+    public BenchPositions position;
+
+    private Game game;
+    private BitBoard board;
+    private int[][] array;
+    private int[] moves;
+
+    @Setup
+    public void setup() {
+        game = new Game();
+        board = position.toGame().getBitBoardCopy();
+        array = board.toArray();
+        moves = new int[position.sequence.length()];
+        for (int i = 0; i < moves.length; i++) moves[i] = position.sequence.charAt(i) - '1';
+    }
+
+    /** Replays the whole position through Game.drop (one op = all moves of the sequence). */
+    @Benchmark
+    public int gameDropSequence() {
+        game.reset();
+        int r = 0;
+        for (int c : moves) r += game.drop(c);
+        return r;
+    }
+
+    /** Every legal child of the position: play, win test, undo. */
+    @Benchmark
+    public long bitBoardPlayUndo() {
+        long acc = 0;
+        for (int c = 0; c < board.getCols(); c++) {
+            if (board.play(c) == -1) continue;
+            if (board.hasWon(1) || board.hasWon(2)) acc++;
+            acc += board.getHash();
+            board.undo();
+        }
+        return acc;
+    }
+
+    @Benchmark
+    public boolean bitBoardHasWon() {
+        return board.hasWon(1) | board.hasWon(2);
+    }
+
+    /** Legacy array path (still used by the viewer): win test through every occupied cell. */
+    @Benchmark
+    public int checkWinOnBoard() {
+        int wins = 0;
+        for (int r = 0; r < array.length; r++)
+            for (int c = 0; c < array[0].length; c++)
+                if (array[r][c] != 0 && Game.checkWinOnBoard(array, r, c, 4)) wins++;
+        return wins;
+    }
+}
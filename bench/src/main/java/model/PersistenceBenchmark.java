@@ -0,0 +1,50 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** Position encoding done by PartieDAO for every saved game (no database involved). */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PersistenceBenchmark {
+
+    @Param({"OPENING", "MIDGAME", "ENDGAME"})
+    public BenchPositions position;
+
+    private int[][] board;
+    private BitBoard bitBoard;
+
+    @Setup
+    public void setup() {
+        Game game = position.toGame();
+        board = game.getBoardCopy();
+        bitBoard = game.getBitBoardCopy();
+    }
+
+    /** Key rebuilt from a plain array (legacy rows, DBViewer). */
+    @Benchmark
+    public byte[] keyFromArray() {
+        return PositionKey.of(board).toBytes();
+    }
+
+    /** Key as written by savePartie: both orientations are kept by the board, pick the canonical one. */
+    @Benchmark
+    public byte[] canonicalKey() {
+        return bitBoard.getCanonicalKey().toBytes();
+    }
+}
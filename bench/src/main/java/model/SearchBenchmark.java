@@ -0,0 +1,64 @@
+package model;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * MinimaxAI.chooseColumn at fixed depth. The "nodes" secondary result is nodes per second.
+ * The transposition table is disabled so that every invocation does the same work.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Thread)
+public class SearchBenchmark {
+
+    @Param({"OPENING", "MIDGAME", "ENDGAME"})
+    public BenchPositions position;
+
+    @Param({"6"})
+    public int depth;
+
+    @Param({"ALPHA_BETA"})
+    public MinimaxAI.SearchMode mode;
+
+    private Game game;
+    private MinimaxAI ai;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Nodes {
+        public long nodes;
+
+        @Setup(Level.Iteration)
+        public void clear() { nodes = 0; }
+    }
+
+    @Setup
+    public void setup() {
+        game = position.toGame();
+        ai = new MinimaxAI(game.getCurrentPlayer(), depth, mode, 0);
+    }
+
+    @Benchmark
+    public int chooseColumn(Nodes counter) {
+        int col = ai.chooseColumn(game);
+        counter.nodes += ai.getNodeCount();
+        return col;
+    }
+}
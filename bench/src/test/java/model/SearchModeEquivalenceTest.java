@@ -0,0 +1,61 @@
+package model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * ALPHA_BETA (pruning, threat masks, transposition table, move ordering) must pick the same
+ * column as the MINIMAX reference at equal depth: ties go to the lowest column in both.
+ */
+class SearchModeEquivalenceTest {
+
+    @Test
+    void sameColumnOnRandomPositions() {
+        assertSameColumns(Rules.DEFAULT, 4, 120, 42);
+    }
+
+    @Test
+    void sameColumnOnRandomPositionsClassic() {
+        assertSameColumns(Rules.CLASSIC, 5, 60, 7);
+    }
+
+    @Test
+    void sameColumnWhenTheOpponentThreatensAtTheHorizon() {
+        // forced lines used to be cut at the last ply, where minimax evaluates instead
+        Game game = new Game();
+        for (int c : new int[] { 7, 5, 8, 1, 3, 5, 8, 1, 7, 5, 5, 2, 5 }) game.drop(c);
+        assertEquals(column(game, 4, MinimaxAI.SearchMode.MINIMAX), column(game, 4, MinimaxAI.SearchMode.ALPHA_BETA));
+    }
+
+    private static void assertSameColumns(Rules rules, int depth, int positions, long seed) {
+        Random rnd = new Random(seed);
+        for (int n = 0; n < positions; ) {
+            Game game = randomPosition(rules, rnd);
+            if (game == null) continue;
+            n++;
+            assertEquals(column(game, depth, MinimaxAI.SearchMode.MINIMAX),
+                    column(game, depth, MinimaxAI.SearchMode.ALPHA_BETA),
+                    "moves " + game.getMoveHistory() + " at depth " + depth);
+        }
+    }
+
+    // random legal moves, null if the game ended on the way
+    private static Game randomPosition(Rules rules, Random rnd) {
+        Game game = new Game(rules);
+        int plies = 4 + rnd.nextInt(rules.getRows() * rules.getCols() / 2);
+        for (int i = 0; i < plies; i++) {
+            if (game.isGameOver()) return null;
+            if (game.drop(rnd.nextInt(rules.getCols())) == -1) i--;
+        }
+        return game.isGameOver() ? null : game;
+    }
+
+    private static int column(Game game, int depth, MinimaxAI.SearchMode mode) {
+        MinimaxAI ai = new MinimaxAI(game.getCurrentPlayer(), depth, mode);
+        ai.setSolverThreshold(0); // same tree for both modes, no exact solve
+        ai.setMetrics(new SearchMetrics());
+        return ai.chooseColumn(game);
+    }
+}
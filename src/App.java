@@ -1,7 +1,32 @@
-import view.GameUI;
-
-public class App {
-    public static void main(String[] args) {
-        new GameUI();
-    }
-}
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import model.GameEventLog;
+import model.ProvenResults;
+import model.SearchMetrics;
+import view.GameUI;
+
+public class App {
+    public static void main(String[] args) {
+        // AI / database figures: JMX (jconsole) and one log line per period, -Dp4.metrics.seconds=0 to mute
+        SearchMetrics metrics = SearchMetrics.global();
+        metrics.registerMBean();
+        long period = Long.getLong("p4.metrics.seconds", 60);
+        if (period > 0) metrics.startLogging(Duration.ofSeconds(period));
+        // game events as JSON lines, only with -Dp4.events=<file>
+        String events = System.getProperty("p4.events", "");
+        if (!events.isEmpty()) {
+            Path file = Paths.get(events).toAbsolutePath();
+            try {
+                GameEventLog.setGlobal(new GameEventLog(file, GameEventLog.DEFAULT_CAPACITY));
+                Runtime.getRuntime().addShutdownHook(new Thread(() -> GameEventLog.setGlobal(null)));
+                System.out.println("Journal d'événements : " + file);
+            } catch (java.io.IOException ex) {
+                System.err.println("Journal d'événements non disponible (" + file + ") : " + ex.getMessage());
+            }
+        }
+        // endgame results still queued for the database
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> ProvenResults.flushShared(5_000)));
+        new GameUI();
+    }
+}
@@ -1,6 +1,7 @@
 package controller;
 
 import model.Game;
+import model.GameEventLog;
 
 public class ControllerJeu {
 	private final Game game;
@@ -12,11 +13,29 @@ public class ControllerJeu {
 	/**
 	 * Attempt to play a disc in the given 0-based column.
 	 * Returns the row index where the disc landed, or -1 if move invalid.
+	 * The move (and the end of the game) goes to GameEventLog when one is installed.
 	 */
 	public int playColumn(int col) {
+		GameEventLog log = GameEventLog.global();
+		if (log == null) return game.drop(col);
+		int ply = game.getMoveCount();
+		int player = game.getCurrentPlayer();
 		int row = game.drop(col);
-		if (row >= 0) System.out.println("Controller: played column " + (col + 1) + " -> row " + row);
-		else System.out.println("Controller: invalid move on column " + (col + 1));
+		if (row < 0) {
+			log.invalidMove(game, col);
+		} else {
+			log.movePlayed(game, ply, player, col, row);
+			if (game.isGameOver() || ply + 1 == game.getRows() * game.getCols()) log.gameOver(game);
+		}
 		return row;
 	}
+
+	/** Takes back the last move (see Game.undo). */
+	public void undo() {
+		GameEventLog log = GameEventLog.global();
+		if (log == null) { game.undo(); return; }
+		int ply = game.getMoveCount();
+		game.undo();
+		if (game.getMoveCount() < ply) log.undo(game, ply - 1);
+	}
 }
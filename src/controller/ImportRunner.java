@@ -0,0 +1,78 @@
+package controller;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import model.BulkImporter;
+import model.DBHelper;
+import model.Rules;
+
+/**
+ * Command-line bulk import of game archives through BulkImporter.
+ *
+ * Usage:
+ *   java -cp bin:lib/* controller.ImportRunner [options] <file or directory>...
+ *     --threads N        replay threads (default: available processors)
+ *     --chunk N          records per COPY batch / transaction (default 5000)
+ *     --all-positions    also store every intermediate position with its results
+ *     --rules CxRxW      board and win length of the archived games (default 9x9x4)
+ *     --restart          forget the saved progress of each source and import it from the start
+ *     --no-resume        import everything, without reading or saving progress
+ *     --db host:port/db  database (default localhost:5432/puissance4)
+ *     --user U --password P
+ *
+ * An interrupted import resumes at the first uncommitted batch when run again with the
+ * same sources.
+ */
+public class ImportRunner {
+    public static void main(String[] args) throws Exception {
+        int threads = Runtime.getRuntime().availableProcessors();
+        int chunk = BulkImporter.DEFAULT_CHUNK_SIZE;
+        boolean allPositions = false, restart = false, resume = true;
+        Rules rules = Rules.DEFAULT;
+        String host = "localhost", dbName = "puissance4", user = "postgres", password = "postgre";
+        int port = 5432;
+        List<File> sources = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--threads":       threads = Integer.parseInt(args[++i]); break;
+                case "--chunk":         chunk = Integer.parseInt(args[++i]); break;
+                case "--all-positions": allPositions = true; break;
+                case "--rules":         rules = Rules.parse(args[++i]); break;
+                case "--restart":       restart = true; break;
+                case "--no-resume":     resume = false; break;
+                case "--user":          user = args[++i]; break;
+                case "--password":      password = args[++i]; break;
+                case "--db": {
+                    // host:port/db
+                    String v = args[++i];
+                    int colon = v.indexOf(':'), slash = v.indexOf('/');
+                    host = v.substring(0, colon);
+                    port = Integer.parseInt(v.substring(colon + 1, slash));
+                    dbName = v.substring(slash + 1);
+                    break;
+                }
+                default:
+                    if (a.startsWith("--")) throw new IllegalArgumentException("unknown option " + a);
+                    sources.add(new File(a));
+            }
+        }
+        if (sources.isEmpty()) throw new IllegalArgumentException("no file or directory to import");
+
+        BulkImporter importer = new BulkImporter(new DBHelper(host, port, dbName, user, password));
+        importer.setThreads(threads);
+        importer.setChunkSize(chunk);
+        importer.setIndexAllPositions(allPositions);
+        importer.setRules(rules);
+        importer.setResume(resume);
+        long total = 0;
+        for (File f : sources) {
+            if (restart && resume) importer.resetProgress(f);
+            total += importer.importSource(f);
+        }
+        System.out.println("Import: done, " + total + " games");
+    }
+}
@@ -0,0 +1,225 @@
+package controller;
+
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import model.DBHelper;
+import model.GameEventLog;
+import model.Game;
+import model.GameMode;
+import model.MinimaxAI;
+import model.PartieDAO;
+import model.ProvenResults;
+import model.Rules;
+import model.SearchMetrics;
+
+/**
+ * Headless AI-vs-AI game generator.
+ *
+ * Plays many games concurrently on a thread pool and streams the finished games to a
+ * single writer thread, which saves them in batches through PartieDAO.
+ *
+ * Usage:
+ *   java -cp bin:lib/* controller.SelfPlayRunner [options]
+ *     --games N          number of games (default 1000)
+ *     --rules CxRxW      board and win length, e.g. 7x6x4 (default 9x9x4)
+ *     --threads N        game threads (default: available processors)
+ *     --p1 S, --p2 S     strength of each side: a depth ("4") or a time budget per move ("200ms")
+ *                        (default 4)
+ *     --solver N         exact endgame solver at or below N empty cells, 0 = off (default 20);
+ *                        proven results are stored in situation_prouvee
+ *     --random-plies N   random opening moves before the AIs take over (default 4)
+ *     --seed N           seed for the random openings (default: current time)
+ *     --batch N          games per database batch (default 100)
+ *     --db host:port/db  database (default localhost:5432/puissance4)
+ *     --user U --password P
+ *     --no-db            play only, do not save
+ *     --all-positions    also store every intermediate position with its results (opening book)
+ *     --events FILE      append move / game over / game saved events to FILE (JSON lines)
+ *     --metrics          add the search / database metrics line to each progress report
+ *                        (also exposed through JMX as puissance4:type=SearchMetrics)
+ */
+public class SelfPlayRunner {
+    private static final int TT_MEGABYTES = 4; // per AI, two AIs per game thread
+    private static final Game END = new Game(); // marks the end of the stream for the writer
+
+    private int games = 1000;
+    private Rules rules = Rules.DEFAULT;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private String p1 = "4";
+    private String p2 = "4";
+    private int solverThreshold = MinimaxAI.DEFAULT_SOLVER_THRESHOLD;
+    private int randomPlies = 4;
+    private long seed = System.nanoTime();
+    private int batchSize = 100;
+    private String host = "localhost";
+    private int port = 5432;
+    private String dbName = "puissance4";
+    private String user = "postgres";
+    private String password = "postgre";
+    private boolean saveToDb = true;
+    private boolean allPositions = false;
+    private boolean printMetrics = false;
+    private String eventsFile = null;
+
+    private final AtomicInteger played = new AtomicInteger();
+    private final AtomicInteger saved = new AtomicInteger();
+    private final int[] results = new int[3]; // draws, player 1 wins, player 2 wins
+
+    public static void main(String[] args) throws Exception {
+        SelfPlayRunner runner = new SelfPlayRunner();
+        runner.parseArgs(args);
+        runner.run();
+    }
+
+    private void parseArgs(String[] args) {
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            switch (a) {
+                case "--games":        games = Integer.parseInt(args[++i]); break;
+                case "--rules":        rules = Rules.parse(args[++i]); break;
+                case "--threads":      threads = Integer.parseInt(args[++i]); break;
+                case "--p1":           p1 = args[++i]; break;
+                case "--p2":           p2 = args[++i]; break;
+                case "--solver":       solverThreshold = Integer.parseInt(args[++i]); break;
+                case "--random-plies": randomPlies = Integer.parseInt(args[++i]); break;
+                case "--seed":         seed = Long.parseLong(args[++i]); break;
+                case "--batch":        batchSize = Integer.parseInt(args[++i]); break;
+                case "--user":         user = args[++i]; break;
+                case "--password":     password = args[++i]; break;
+                case "--no-db":        saveToDb = false; break;
+                case "--all-positions": allPositions = true; break;
+                case "--metrics":      printMetrics = true; break;
+                case "--events":       eventsFile = args[++i]; break;
+                case "--db": {
+                    // host:port/db
+                    String v = args[++i];
+                    int colon = v.indexOf(':'), slash = v.indexOf('/');
+                    host = v.substring(0, colon);
+                    port = Integer.parseInt(v.substring(colon + 1, slash));
+                    dbName = v.substring(slash + 1);
+                    break;
+                }
+                default: throw new IllegalArgumentException("unknown option " + a);
+            }
+        }
+        // fail fast on a malformed strength
+        depthOf(p1);
+        depthOf(p2);
+    }
+
+    public void run() throws Exception {
+        SearchMetrics.global().registerMBean();
+        if (eventsFile != null)
+            GameEventLog.setGlobal(new GameEventLog(Paths.get(eventsFile), GameEventLog.DEFAULT_CAPACITY));
+        DBHelper db = saveToDb ? new DBHelper(host, port, dbName, user, password) : null;
+        PartieDAO dao = db != null ? new PartieDAO(db) : null;
+        if (dao != null) dao.setIndexAllPositions(allPositions);
+        // shared by every game thread: a position solved in one game is known to all the others
+        ProvenResults proven = db != null && solverThreshold > 0 ? new ProvenResults(db) : null;
+        BlockingQueue<Game> finished = new LinkedBlockingQueue<>(Math.max(batchSize * 4, 1000));
+        Thread writer = new Thread(() -> writeLoop(dao, finished), "selfplay-writer");
+        writer.start();
+
+        // each pool thread keeps its own pair of AIs across games (transposition tables reused)
+        ThreadLocal<MinimaxAI[]> ais = ThreadLocal.withInitial(() -> {
+            MinimaxAI[] pair = { null, new MinimaxAI(1, depthOf(p1), MinimaxAI.SearchMode.ALPHA_BETA, TT_MEGABYTES),
+                    new MinimaxAI(2, depthOf(p2), MinimaxAI.SearchMode.ALPHA_BETA, TT_MEGABYTES) };
+            for (int p = 1; p <= 2; p++) {
+                pair[p].setSolverThreshold(solverThreshold);
+                pair[p].setProvenResults(proven);
+            }
+            return pair;
+        });
+        Duration[] budgets = { null, budgetOf(p1), budgetOf(p2) };
+
+        long start = System.nanoTime();
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        for (int g = 0; g < games; g++) {
+            long gameSeed = seed + g;
+            pool.execute(() -> {
+                Game game = playGame(ais.get(), budgets, new Random(gameSeed));
+                synchronized (results) { results[game.getWinner()]++; }
+                played.incrementAndGet();
+                try {
+                    finished.put(game);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+        }
+        pool.shutdown();
+        while (!pool.awaitTermination(5, TimeUnit.SECONDS)) report(start);
+        finished.put(END);
+        writer.join();
+        if (proven != null) proven.flush(10_000);
+        GameEventLog events = GameEventLog.global();
+        if (events != null) {
+            GameEventLog.setGlobal(null); // closes it once the buffered events are written
+            System.out.println("SelfPlay: " + events.getWrittenCount() + " events written, "
+                    + events.getDroppedCount() + " dropped");
+        }
+        report(start);
+        System.out.println("SelfPlay: done, " + results[1] + " J1 / " + results[2] + " J2 / " + results[0] + " nul");
+    }
+
+    /** Random opening, then both AIs alternate until the game ends or the board is full. */
+    private Game playGame(MinimaxAI[] ai, Duration[] budgets, Random rnd) {
+        Game game = new Game(rules);
+        ControllerJeu controller = new ControllerJeu(game);
+        int cells = game.getRows() * game.getCols();
+        for (int i = 0; i < randomPlies && !game.isGameOver(); i++) {
+            int col = rnd.nextInt(game.getCols());
+            if (controller.playColumn(col) == -1) i--;
+        }
+        while (!game.isGameOver() && game.getMoveCount() < cells) {
+            int p = game.getCurrentPlayer();
+            int col = budgets[p] != null ? ai[p].chooseColumn(game, budgets[p]) : ai[p].chooseColumn(game);
+            controller.playColumn(col);
+        }
+        return game;
+    }
+
+    private void writeLoop(PartieDAO dao, BlockingQueue<Game> finished) {
+        List<Game> batch = new ArrayList<>(batchSize);
+        try {
+            while (true) {
+                Game first = finished.take();
+                if (first != END) batch.add(first);
+                finished.drainTo(batch, batchSize - batch.size());
+                boolean end = first == END || batch.remove(END);
+                if (dao != null && !batch.isEmpty()) saved.addAndGet(dao.savePartie(batch, GameMode.AI_VS_AI));
+                batch.clear();
+                if (end) return;
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void report(long start) {
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("SelfPlay: %d/%d games played, %d saved, %.1f games/s%n",
+                played.get(), games, saved.get(), played.get() / Math.max(secs, 1e-9));
+        if (printMetrics) System.out.println(SearchMetrics.global().logLine());
+    }
+
+    // "4" = fixed depth, "200ms" = time budget per move (depth then only sizes the search buffers)
+    private static int depthOf(String s) {
+        if (s.endsWith("ms")) { budgetOf(s); return 1; }
+        return Integer.parseInt(s);
+    }
+
+    private static Duration budgetOf(String s) {
+        return s.endsWith("ms") ? Duration.ofMillis(Long.parseLong(s.substring(0, s.length() - 2))) : null;
+    }
+}
@@ -0,0 +1,417 @@
+package model;
+
+/**
+ * Compact bitboard engine for the game board.
+ *
+ * Each player owns a 128-bit set stored as two longs (lo = bits 0..63, hi = bits 64..127).
+ * Cells are laid out column by column, bottom to top, with one extra sentinel bit per
+ * column (stride = rows + 1) so that vertical and diagonal shifts never wrap into the
+ * next column. A 9x9 board therefore uses 9 * 10 = 90 bits.
+ *
+ * Row indices exposed by this class follow {@link Game}: row 0 is the top of the board.
+ * play / undo / win detection are pure shift-and-mask operations and never allocate.
+ * Boards of at most 64 bits (7x6, 8x7 ...) never touch the high halves and detect wins
+ * with plain 64-bit shifts.
+ */
+public final class BitBoard {
+    // Zobrist keys indexed by (player - 1) * 128 + bit, fixed seed so hashes are stable across runs
+    private static final long[] ZOBRIST = new long[256];
+    static {
+        java.util.SplittableRandom rnd = new java.util.SplittableRandom(0x9E3779B97F4A7C15L);
+        for (int i = 0; i < ZOBRIST.length; i++) ZOBRIST[i] = rnd.nextLong();
+    }
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final int stride;
+    private final boolean narrow;   // stride * cols <= 64: hi1 / hi2 stay 0
+    private final int keyTag;       // rules tag of the position keys (see PositionKey)
+
+    // player 1 / player 2 bit sets
+    private long lo1, hi1;
+    private long lo2, hi2;
+
+    private final int[] heights;
+    private final int[] history; // 0-based columns, in play order
+    private int moves;
+    private long hash;
+
+    // column-packed position key and its mirror (see PositionKey), maintained by play / undo
+    private final long emptyKeyHi, emptyKeyLo;
+    private long keyHi, keyLo;
+    private long mirrorHi, mirrorLo;
+
+    // every playable cell (no sentinel bits), and the last threat mask computed (see threats)
+    private final long cellsLo, cellsHi;
+    private long threatLo, threatHi;
+    private int threatPlayer;
+    private int threatStamp = -1;
+    private int stamp;              // bumped by every play / undo / clear
+
+    // incremental window evaluation (see WindowTable)
+    private final WindowTable windows;
+    private final byte[] windowCounts;
+    private int windowScore;
+
+    public BitBoard(int rows, int cols, int winLength) {
+        if ((rows + 1) * cols > 128) throw new IllegalArgumentException("board too large for a 128-bit bitboard");
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+        this.stride = rows + 1;
+        this.narrow = stride * cols <= 64;
+        this.keyTag = PositionKey.tag(rows, cols, winLength);
+        this.heights = new int[cols];
+        this.history = new int[rows * cols];
+        this.windows = WindowTable.of(rows, cols, winLength);
+        this.windowCounts = new byte[windows.windowCount];
+        // empty board: every column chunk holds just its marker bit
+        long eHi = 0, eLo = 0;
+        for (int c = 0; c < cols; c++) {
+            int pos = c * stride;
+            if (pos < 64) eLo |= 1L << pos; else eHi |= 1L << (pos - 64);
+        }
+        this.emptyKeyHi = keyHi = mirrorHi = eHi;
+        this.emptyKeyLo = keyLo = mirrorLo = eLo;
+        long cLo = 0, cHi = 0;
+        for (int c = 0; c < cols; c++) for (int h = 0; h < rows; h++) {
+            int pos = c * stride + h;
+            if (pos < 64) cLo |= 1L << pos; else cHi |= 1L << (pos - 64);
+        }
+        this.cellsLo = cLo;
+        this.cellsHi = cHi;
+    }
+
+    private BitBoard(BitBoard other) {
+        this.rows = other.rows;
+        this.cols = other.cols;
+        this.winLength = other.winLength;
+        this.stride = other.stride;
+        this.narrow = other.narrow;
+        this.keyTag = other.keyTag;
+        this.lo1 = other.lo1; this.hi1 = other.hi1;
+        this.lo2 = other.lo2; this.hi2 = other.hi2;
+        this.heights = other.heights.clone();
+        this.history = other.history.clone();
+        this.moves = other.moves;
+        this.hash = other.hash;
+        this.emptyKeyHi = other.emptyKeyHi; this.emptyKeyLo = other.emptyKeyLo;
+        this.keyHi = other.keyHi; this.keyLo = other.keyLo;
+        this.mirrorHi = other.mirrorHi; this.mirrorLo = other.mirrorLo;
+        this.cellsLo = other.cellsLo;
+        this.cellsHi = other.cellsHi;
+        this.windows = other.windows;
+        this.windowCounts = other.windowCounts.clone();
+        this.windowScore = other.windowScore;
+    }
+
+    public BitBoard copy() { return new BitBoard(this); }
+
+    public boolean sameGeometry(BitBoard other) {
+        return rows == other.rows && cols == other.cols && winLength == other.winLength;
+    }
+
+    /** Overwrites this board with the position of other (same geometry), without allocating. */
+    public void copyFrom(BitBoard other) {
+        if (!sameGeometry(other)) throw new IllegalArgumentException("board geometry differs");
+        lo1 = other.lo1; hi1 = other.hi1;
+        lo2 = other.lo2; hi2 = other.hi2;
+        System.arraycopy(other.heights, 0, heights, 0, cols);
+        System.arraycopy(other.history, 0, history, 0, other.moves);
+        System.arraycopy(other.windowCounts, 0, windowCounts, 0, windowCounts.length);
+        moves = other.moves;
+        hash = other.hash;
+        keyHi = other.keyHi; keyLo = other.keyLo;
+        mirrorHi = other.mirrorHi; mirrorLo = other.mirrorLo;
+        windowScore = other.windowScore;
+        stamp++;
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getWinLength() { return winLength; }
+    public int getMoveCount() { return moves; }
+
+    /** Zobrist hash of the position, maintained incrementally by play / undo. */
+    public long getHash() { return hash; }
+
+    /**
+     * Sum over all winLength windows still open to a single player of 1 / 4 / 16 ... for
+     * 1 / 2 / 3 ... discs, from player 1's point of view. Maintained incrementally.
+     */
+    public int getWindowScore() { return windowScore; }
+
+    /** Fixed-width key of the position (see {@link PositionKey}), maintained incrementally. */
+    public PositionKey getKey() { return new PositionKey(keyHi, keyLo, stride * cols, keyTag); }
+
+    /** Key of the horizontally mirrored position. */
+    public PositionKey getMirrorKey() { return new PositionKey(mirrorHi, mirrorLo, stride * cols, keyTag); }
+
+    /** min(key, mirror key): identical for a position and its mirror. */
+    public PositionKey getCanonicalKey() {
+        int c = Long.compareUnsigned(keyHi, mirrorHi);
+        boolean mirror = c > 0 || (c == 0 && Long.compareUnsigned(keyLo, mirrorLo) > 0);
+        return mirror ? getMirrorKey() : getKey();
+    }
+
+    /** Player whose turn it is according to move parity (1 or 2). */
+    public int getPlayerToMove() { return 1 + (moves & 1); }
+
+    public int getHeight(int c) { return heights[c]; }
+
+    public boolean canPlay(int c) { return c >= 0 && c < cols && heights[c] < rows; }
+
+    public boolean isFull() { return moves == rows * cols; }
+
+    public void clear() {
+        lo1 = hi1 = lo2 = hi2 = 0L;
+        for (int c = 0; c < cols; c++) heights[c] = 0;
+        moves = 0;
+        hash = 0L;
+        keyHi = mirrorHi = emptyKeyHi;
+        keyLo = mirrorLo = emptyKeyLo;
+        java.util.Arrays.fill(windowCounts, (byte) 0);
+        windowScore = 0;
+        stamp++;
+    }
+
+    /**
+     * Drops a disc of the side to move in column c.
+     * Returns the row (0 = top) where it landed, or -1 if the column is full/invalid.
+     */
+    public int play(int c) {
+        if (!canPlay(c)) return -1;
+        int h = heights[c]++;
+        int bit = c * stride + h;
+        if ((moves & 1) == 0) {
+            if (bit < 64) lo1 |= 1L << bit; else hi1 |= 1L << (bit - 64);
+        } else {
+            if (bit < 64) lo2 |= 1L << bit; else hi2 |= 1L << (bit - 64);
+        }
+        hash ^= ZOBRIST[((moves & 1) << 7) + bit];
+        flipKeys(c, h);
+        updateWindows(bit, (moves & 1) == 0 ? 1 : 16);
+        history[moves++] = c;
+        stamp++;
+        return rows - 1 - h;
+    }
+
+    /** Removes the last disc played. Returns its column, or -1 if the board is empty. */
+    public int undo() {
+        if (moves == 0) return -1;
+        int c = history[--moves];
+        int bit = c * stride + --heights[c];
+        long mLo = bit < 64 ? ~(1L << bit) : -1L;
+        long mHi = bit < 64 ? -1L : ~(1L << (bit - 64));
+        if ((moves & 1) == 0) { lo1 &= mLo; hi1 &= mHi; }
+        else                  { lo2 &= mLo; hi2 &= mHi; }
+        hash ^= ZOBRIST[((moves & 1) << 7) + bit];
+        flipKeys(c, heights[c]);
+        updateWindows(bit, (moves & 1) == 0 ? -1 : -16);
+        stamp++;
+        return c;
+    }
+
+    // Disc of the side to move at height h of column c: the marker moves from h to h + 1 and
+    // bit h becomes the disc (1 for player 1, 0 for player 2). Self-inverse, so undo reuses it.
+    private void flipKeys(int c, int h) {
+        long flip = (moves & 1) == 0 ? 2L << h : 3L << h;
+        int pos = (cols - 1 - c) * stride;   // column 0 is the most significant chunk
+        int mPos = c * stride;               // ... and the least significant one once mirrored
+        keyLo ^= shlLo(flip, pos);
+        keyHi ^= shlHi(flip, pos);
+        mirrorLo ^= shlLo(flip, mPos);
+        mirrorHi ^= shlHi(flip, mPos);
+    }
+
+    // delta = +-1 for player 1, +-16 for player 2 (packed nibble counts)
+    private void updateWindows(int bit, int delta) {
+        int[] ws = windows.cellWindows;
+        int[] value = windows.value;
+        for (int k = windows.cellStart[bit], end = windows.cellStart[bit + 1]; k < end; k++) {
+            int w = ws[k];
+            int before = windowCounts[w] & 0xFF;
+            int after = before + delta;
+            windowCounts[w] = (byte) after;
+            windowScore += value[after] - value[before];
+        }
+    }
+
+    /** Cell value (0 empty, 1 or 2) using Game coordinates (row 0 = top). */
+    public int getCell(int r, int c) {
+        int bit = c * stride + (rows - 1 - r);
+        if (bit < 64) {
+            if (((lo1 >>> bit) & 1L) != 0) return 1;
+            if (((lo2 >>> bit) & 1L) != 0) return 2;
+        } else {
+            if (((hi1 >>> (bit - 64)) & 1L) != 0) return 1;
+            if (((hi2 >>> (bit - 64)) & 1L) != 0) return 2;
+        }
+        return 0;
+    }
+
+    /** True if player p has winLength aligned discs anywhere on the board. */
+    public boolean hasWon(int p) {
+        if (narrow) {
+            long b = p == 1 ? lo1 : lo2;
+            return aligned(b, 1)              // vertical
+                || aligned(b, stride)         // horizontal
+                || aligned(b, stride - 1)     // diagonal /
+                || aligned(b, stride + 1);    // diagonal \
+        }
+        long lo = p == 1 ? lo1 : lo2;
+        long hi = p == 1 ? hi1 : hi2;
+        return aligned(lo, hi, 1)
+            || aligned(lo, hi, stride)
+            || aligned(lo, hi, stride - 1)
+            || aligned(lo, hi, stride + 1);
+    }
+
+    // Runs are doubled at each step (bit i set = run of len starting at i), then topped up to
+    // winLength: two shift-and steps for four in a row instead of three.
+    private boolean aligned(long b, int s) {
+        long m = b;
+        int len = 1;
+        for (; 2 * len <= winLength && m != 0; len *= 2) m &= shr(m, len * s);
+        if (len < winLength) m &= shr(m, (winLength - len) * s);
+        return m != 0;
+    }
+
+    private boolean aligned(long lo, long hi, int s) {
+        long mLo = lo, mHi = hi;
+        int len = 1;
+        for (; 2 * len <= winLength && (mLo | mHi) != 0; len *= 2) {
+            int sh = len * s;
+            mLo &= shrLo(mLo, mHi, sh);
+            mHi &= shrHi(mHi, sh);
+        }
+        if (len < winLength) {
+            int sh = (winLength - len) * s;
+            mLo &= shrLo(mLo, mHi, sh);
+            mHi &= shrHi(mHi, sh);
+        }
+        return (mLo | mHi) != 0;
+    }
+
+    private static long shr(long v, int s) {
+        return s >= 64 ? 0L : v >>> s;
+    }
+
+    // 128-bit logical right shift of (hi:lo), split into its two halves
+    private static long shrLo(long lo, long hi, int s) {
+        if (s == 0) return lo;
+        if (s >= 128) return 0L;
+        if (s >= 64) return hi >>> (s - 64);
+        return (lo >>> s) | (hi << (64 - s));
+    }
+
+    private static long shrHi(long hi, int s) {
+        return s >= 64 ? 0L : hi >>> s;
+    }
+
+    // low / high halves of a 64-bit value shifted left by s < 128
+    private static long shlLo(long v, int s) {
+        return s >= 64 ? 0L : v << s;
+    }
+
+    private static long shlHi(long v, int s) {
+        if (s == 0) return 0L;
+        return s >= 64 ? v << (s - 64) : v >>> (64 - s);
+    }
+
+    /** Columns (bit c) that can still be played. */
+    public int playableColumns() {
+        int m = 0;
+        for (int c = 0; c < cols; c++) if (heights[c] < rows) m |= 1 << c;
+        return m;
+    }
+
+    /** Columns (bit c) where player p would complete a line by dropping a disc now. */
+    public int winningColumns(int p) {
+        threats(p);
+        int m = 0;
+        for (int c = 0; c < cols; c++) {
+            int h = heights[c];
+            if (h < rows && isThreat(c * stride + h)) m |= 1 << c;
+        }
+        return m;
+    }
+
+    /**
+     * Columns (bit c) whose next disc would land right below a cell where p completes a line:
+     * playing there lets p win on top of it.
+     */
+    public int belowThreatColumns(int p) {
+        threats(p);
+        int m = 0;
+        for (int c = 0; c < cols; c++) {
+            int h = heights[c];
+            if (h + 1 < rows && isThreat(c * stride + h + 1)) m |= 1 << c;
+        }
+        return m;
+    }
+
+    /** Number of empty cells, playable now or later, where p would complete a line. */
+    public int threatCount(int p) {
+        threats(p);
+        return Long.bitCount(threatLo) + Long.bitCount(threatHi);
+    }
+
+    private boolean isThreat(int bit) {
+        return bit < 64 ? ((threatLo >>> bit) & 1L) != 0 : ((threatHi >>> (bit - 64)) & 1L) != 0;
+    }
+
+    // Empty cells completing a line of p, into threatLo / threatHi (kept until the next move).
+    // A cell e completes a line along shift s when, for some gap index j, the other winLength - 1
+    // cells e + (k - j) * s all hold p's discs.
+    private void threats(int p) {
+        if (threatStamp == stamp && threatPlayer == p) return;
+        long lo = p == 1 ? lo1 : lo2, hi = p == 1 ? hi1 : hi2;
+        long rLo = 0, rHi = 0;
+        for (int dir = 0; dir < 4; dir++) {
+            int s = dir == 0 ? 1 : dir == 1 ? stride : dir == 2 ? stride - 1 : stride + 1;
+            for (int j = 0; j < winLength; j++) {
+                long mLo = -1L, mHi = narrow ? 0L : -1L;
+                for (int k = 0; k < winLength && (mLo | mHi) != 0; k++) {
+                    if (k == j) continue;
+                    int d = (k - j) * s;
+                    if (narrow) {
+                        mLo &= d > 0 ? shr(lo, d) : shl(lo, -d);
+                    } else if (d > 0) {
+                        mLo &= shrLo(lo, hi, d);
+                        mHi &= shrHi(hi, d);
+                    } else {
+                        mHi &= shl128Hi(lo, hi, -d);
+                        mLo &= shl(lo, -d);
+                    }
+                }
+                rLo |= mLo;
+                rHi |= mHi;
+            }
+        }
+        threatLo = rLo & cellsLo & ~(lo1 | lo2);
+        threatHi = rHi & cellsHi & ~(hi1 | hi2);
+        threatPlayer = p;
+        threatStamp = stamp;
+    }
+
+    private static long shl(long v, int s) {
+        return s >= 64 ? 0L : v << s;
+    }
+
+    // high half of the 128-bit (hi:lo) shifted left by s
+    private static long shl128Hi(long lo, long hi, int s) {
+        if (s == 0) return hi;
+        if (s >= 128) return 0L;
+        if (s >= 64) return lo << (s - 64);
+        return (hi << s) | (lo >>> (64 - s));
+    }
+
+    /** Materializes the board as int[rows][cols] (row 0 = top). */
+    public int[][] toArray() {
+        int[][] board = new int[rows][cols];
+        for (int r = 0; r < rows; r++) for (int c = 0; c < cols; c++) board[r][c] = getCell(r, c);
+        return board;
+    }
+}
@@ -0,0 +1,444 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+
+/**
+ * Import en masse d'archives de parties.
+ *
+ * Une source est un fichier ou une arborescence de fichiers, lus en flux :
+ *  - fichier texte : une partie par ligne → séquence [MODE]
+ *      ex: 4534621 HUMAN_VS_HUMAN   (mode par défaut : HUMAN_VS_HUMAN,
+ *      lignes vides et commençant par # ignorées)
+ *  - ancien format : fichier sans partie dans son contenu dont le nom contient
+ *    des chiffres (ex: partie_4534621.txt) ; comme l'import d'origine, les chiffres
+ *    1 à 9 du nom forment la séquence d'une seule partie.
+ *  Un fichier qui n'est ni l'un ni l'autre est signalé et ignoré.
+ *
+ * Les lignes sont découpées en paquets ; plusieurs threads rejouent les parties
+ * (BitBoard) et préparent les lignes CSV, puis un seul chargeur envoie chaque paquet,
+ * dans l'ordre, par COPY dans deux tables temporaires et le fusionne en SQL ensembliste
+ * (upsert des situations, insertion des parties, puis liens partie_position si toutes
+ * les positions sont indexées). Chaque paquet est une transaction
+ * qui enregistre aussi le nombre d'enregistrements traités de la source (import_progress) :
+ * après un échec, relancer l'import reprend au premier paquet non validé.
+ */
+public class BulkImporter {
+    public static final int DEFAULT_CHUNK_SIZE = 5000;
+    private static final long REPORT_INTERVAL_NANOS = 2_000_000_000L;
+
+    private static final String CREATE_STAGING =
+            "CREATE TEMP TABLE IF NOT EXISTS import_situation (" +
+            "  pos_key BYTEA, sym_pos_key BYTEA, nb_parties INTEGER, move_number INTEGER, resultat INTEGER," +
+            "  nb_victoires_j1 INTEGER, nb_victoires_j2 INTEGER, nb_nuls INTEGER" +
+            ") ON COMMIT DELETE ROWS";
+    private static final String CREATE_STAGING_PARTIE =
+            "CREATE TEMP TABLE IF NOT EXISTS import_partie (" +
+            "  ord INTEGER, pos_key BYTEA, sequence TEXT, nb_coups INTEGER, winner INTEGER, mode VARCHAR(20)," +
+            "  regle VARCHAR(16), id INTEGER" +
+            ") ON COMMIT DELETE ROWS";
+    private static final String CREATE_STAGING_POSITION =
+            "CREATE TEMP TABLE IF NOT EXISTS import_position (ord INTEGER, pos_key BYTEA) ON COMMIT DELETE ROWS";
+    private static final String MERGE_SITUATIONS =
+            "INSERT INTO situation(pos_key, sym_pos_key, nb_parties, move_number, resultat, " +
+            "                      nb_victoires_j1, nb_victoires_j2, nb_nuls) " +
+            "SELECT pos_key, sym_pos_key, nb_parties, move_number, resultat, " +
+            "       nb_victoires_j1, nb_victoires_j2, nb_nuls " +
+            "FROM import_situation ORDER BY pos_key " +
+            "ON CONFLICT (pos_key) DO UPDATE SET " +
+            "  nb_parties      = situation.nb_parties      + EXCLUDED.nb_parties," +
+            "  nb_victoires_j1 = situation.nb_victoires_j1 + EXCLUDED.nb_victoires_j1," +
+            "  nb_victoires_j2 = situation.nb_victoires_j2 + EXCLUDED.nb_victoires_j2," +
+            "  nb_nuls         = situation.nb_nuls         + EXCLUDED.nb_nuls";
+    // ids des parties réservés d'avance, dans l'ordre du fichier, pour relier import_position
+    private static final String ASSIGN_PARTIE_IDS =
+            "UPDATE import_partie p SET id = q.id " +
+            "FROM (SELECT ord, nextval(pg_get_serial_sequence('partie', 'id')) AS id " +
+            "      FROM (SELECT ord FROM import_partie ORDER BY ord) o) q " +
+            "WHERE p.ord = q.ord";
+    private static final String MERGE_PARTIES =
+            "INSERT INTO partie(id, situation_id, sequence, nb_coups, winner, mode, regle) " +
+            "SELECT p.id, s.id, p.sequence, p.nb_coups, p.winner, p.mode, p.regle " +
+            "FROM import_partie p JOIN situation s ON s.pos_key = p.pos_key ORDER BY p.ord";
+    private static final String MERGE_POSITIONS =
+            "INSERT INTO partie_position(situation_id, partie_id) " +
+            "SELECT s.id, p.id FROM import_position x " +
+            "JOIN import_partie p ON p.ord = x.ord JOIN situation s ON s.pos_key = x.pos_key " +
+            "ON CONFLICT DO NOTHING";
+    private static final String SAVE_PROGRESS =
+            "INSERT INTO import_progress(source, records_done) VALUES (?, ?) " +
+            "ON CONFLICT (source) DO UPDATE SET records_done = EXCLUDED.records_done, updated_at = CURRENT_TIMESTAMP";
+
+    private final DBHelper db;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private int chunkSize = DEFAULT_CHUNK_SIZE;
+    private boolean allPositions;
+    private boolean resume = true;
+    private boolean verbose = true;
+
+    private Rules rules = Rules.DEFAULT;
+
+    public BulkImporter(DBHelper db) throws SQLException {
+        this.db = db;
+        this.db.initDatabase();
+    }
+
+    /** Règles des parties importées (par défaut 9×9, 4 alignés). */
+    public void setRules(Rules rules) { this.rules = rules; }
+
+    /** Threads de rejeu (par défaut : nombre de processeurs). */
+    public void setThreads(int threads) { this.threads = Math.max(1, threads); }
+
+    /** Enregistrements (lignes ou fichiers) par paquet / transaction. */
+    public void setChunkSize(int chunkSize) { this.chunkSize = Math.max(1, chunkSize); }
+
+    /** Enregistre aussi les positions intermédiaires (voir PartieDAO.setIndexAllPositions). */
+    public void setIndexAllPositions(boolean allPositions) { this.allPositions = allPositions; }
+
+    /**
+     * true (défaut) : reprend chaque source là où le dernier import validé s'est arrêté.
+     * false : tout est importé, sans lire ni écrire import_progress.
+     */
+    public void setResume(boolean resume) { this.resume = resume; }
+
+    /** Affiche la progression (parties/s) sur la sortie standard. */
+    public void setVerbose(boolean verbose) { this.verbose = verbose; }
+
+    /** Oublie la progression enregistrée de la source (le prochain import repart du début). */
+    public void resetProgress(File source) throws SQLException, IOException {
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement("DELETE FROM import_progress WHERE source = ?")) {
+            ps.setString(1, sourceId(source));
+            ps.executeUpdate();
+        }
+    }
+
+    /** Importe plusieurs sources l'une après l'autre ; retourne le nombre de parties importées. */
+    public long importAll(File[] sources) throws SQLException, IOException {
+        long total = 0;
+        for (File f : sources) total += importSource(f);
+        return total;
+    }
+
+    /** Importe un fichier ou une arborescence ; retourne le nombre de parties importées. */
+    public long importSource(File source) throws SQLException, IOException {
+        String id = sourceId(source);
+        long done = resume ? recordsDone(id) : 0;
+        Progress progress = new Progress(id, done);
+
+        ExecutorService workers = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "import-worker");
+            t.setDaemon(true);
+            return t;
+        });
+        // paquets dans l'ordre de lecture ; borné pour ne pas lire plus vite qu'on n'écrit
+        BlockingQueue<Future<Chunk>> chunks = new ArrayBlockingQueue<>(threads * 2);
+        Thread reader = new Thread(() -> readSource(source, done, workers, chunks), "import-reader");
+        reader.setDaemon(true);
+        reader.start();
+
+        try (Connection c = db.getConnection()) {
+            try (Statement st = c.createStatement()) {
+                st.execute(CREATE_STAGING);
+                st.execute(CREATE_STAGING_PARTIE);
+                st.execute(CREATE_STAGING_POSITION);
+            }
+            CopyManager copy = c.unwrap(PGConnection.class).getCopyAPI();
+            c.setAutoCommit(false);
+            while (true) {
+                Chunk chunk = chunks.take().get();
+                if (chunk == null) break; // fin de la source
+                try {
+                    load(c, copy, chunk, id);
+                    c.commit();
+                } catch (SQLException | IOException ex) {
+                    c.rollback();
+                    throw ex;
+                }
+                progress.add(chunk);
+                if (verbose) progress.reportIfDue();
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("import interrompu", ex);
+        } catch (ExecutionException ex) {
+            // seul le lecteur produit des IOException ; rejeu (RuntimeException) et SQL gardent leur message
+            Throwable cause = ex.getCause();
+            if (cause instanceof IOException)
+                throw new IOException("lecture de " + source + " impossible : " + cause.getMessage(), cause);
+            if (cause instanceof SQLException) throw (SQLException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            if (cause instanceof Error) throw (Error) cause;
+            throw new IllegalStateException("import de " + source + " : " + cause, cause);
+        } finally {
+            reader.interrupt();
+            workers.shutdownNow();
+        }
+        if (verbose) progress.report();
+        return progress.games;
+    }
+
+    // ── Lecture et rejeu ──
+
+    // Découpe la source en paquets d'enregistrements et confie chaque paquet au pool
+    private void readSource(File source, long skip, ExecutorService workers, BlockingQueue<Future<Chunk>> chunks) {
+        try {
+            List<String> batch = new ArrayList<>(chunkSize);
+            long record = 0;
+            for (File f : listFiles(source)) {
+                String legacy = hasRecords(f) ? null : legacySequence(f);
+                if (legacy != null && legacy.isEmpty()) {
+                    if (verbose) System.err.println("Import : fichier ignoré (aucune partie) : " + f);
+                    continue;
+                }
+                if (legacy != null) {
+                    if (record++ >= skip) batch.add(legacy);
+                    if (batch.size() == chunkSize) { submit(batch, record, workers, chunks); batch = new ArrayList<>(chunkSize); }
+                    continue;
+                }
+                try (BufferedReader in = Files.newBufferedReader(f.toPath(), StandardCharsets.UTF_8)) {
+                    String line;
+                    while ((line = in.readLine()) != null) {
+                        if (record++ < skip) continue;
+                        batch.add(line);
+                        if (batch.size() == chunkSize) { submit(batch, record, workers, chunks); batch = new ArrayList<>(chunkSize); }
+                    }
+                }
+            }
+            if (!batch.isEmpty()) submit(batch, record, workers, chunks);
+            chunks.put(CompletableFuture.completedFuture(null));
+        } catch (IOException ex) {
+            CompletableFuture<Chunk> failed = new CompletableFuture<>();
+            failed.completeExceptionally(ex);
+            try { chunks.put(failed); } catch (InterruptedException ignored) { }
+        } catch (InterruptedException ex) {
+            // import abandonné par le chargeur
+        }
+    }
+
+    private void submit(List<String> lines, long recordsDoneAfter, ExecutorService workers,
+                        BlockingQueue<Future<Chunk>> chunks) throws InterruptedException {
+        chunks.put(workers.submit(() -> encode(lines, recordsDoneAfter)));
+    }
+
+    // Rejoue un paquet et prépare les deux flux CSV pour COPY
+    private Chunk encode(List<String> lines, long recordsDoneAfter) {
+        Chunk chunk = new Chunk();
+        chunk.records = lines.size();
+        chunk.recordsDoneAfter = recordsDoneAfter;
+        Map<PositionKey, PartieDAO.Situation> situations = new TreeMap<>();
+        StringBuilder parties = new StringBuilder(lines.size() * 48);
+        StringBuilder positions = new StringBuilder(allPositions ? lines.size() * 1024 : 0);
+        BitBoard board = new BitBoard(rules.getRows(), rules.getCols(), rules.getWinLength());
+        String regle = rules.code();
+        StringBuilder seq = new StringBuilder();
+
+        for (String raw : lines) {
+            String line = raw.trim();
+            if (line.isEmpty() || line.startsWith("#")) continue;
+            String[] parts = line.split("\\s+");
+            GameMode mode;
+            try {
+                mode = parts.length > 1 ? GameMode.valueOf(parts[1]) : GameMode.HUMAN_VS_HUMAN;
+            } catch (IllegalArgumentException ex) {
+                chunk.rejected++;
+                continue;
+            }
+
+            // Rejouer jusqu'à la fin de la séquence, un coup impossible ou une victoire
+            board.clear();
+            seq.setLength(0);
+            int winner = 0;
+            for (int i = 0; i < parts[0].length() && winner == 0; i++) {
+                char ch = parts[0].charAt(i);
+                if (ch < '1' || ch > '9') continue;
+                int player = board.getPlayerToMove();
+                if (board.play(ch - '1') == -1) break;
+                seq.append(ch);
+                if (board.hasWon(player)) winner = player;
+            }
+            if (seq.length() == 0) { chunk.rejected++; continue; }
+            boolean draw = winner == 0 && board.isFull();
+
+            PositionKey finalKey;
+            if (allPositions) {
+                // le résultat est connu : compter chaque position de la partie
+                board.clear();
+                for (int i = 0; i < seq.length(); i++) {
+                    board.play(seq.charAt(i) - '1');
+                    PositionKey k = PartieDAO.addSituation(situations, board, i == seq.length() - 1, winner, draw);
+                    positions.append(chunk.games).append(",\\x").append(k).append('\n');
+                }
+                finalKey = board.getCanonicalKey();
+            } else {
+                finalKey = PartieDAO.addSituation(situations, board, true, winner, draw);
+            }
+
+            parties.append(chunk.games++).append(',')
+                   .append("\\x").append(finalKey).append(',')
+                   .append(seq).append(',')
+                   .append(seq.length()).append(',')
+                   .append(winner).append(',')
+                   .append(mode.name()).append(',')
+                   .append(regle).append('\n');
+        }
+
+        StringBuilder sit = new StringBuilder(situations.size() * 80);
+        for (PartieDAO.Situation s : situations.values()) {
+            sit.append("\\x").append(s.key).append(',')
+               .append("\\x").append(s.symKey).append(',')
+               .append(s.nbParties).append(',')
+               .append(s.moveNumber).append(',')
+               .append(s.resultat == null ? "" : s.resultat.toString()).append(',')
+               .append(s.victoiresJ1).append(',')
+               .append(s.victoiresJ2).append(',')
+               .append(s.nuls).append('\n');
+        }
+        chunk.situations = situations.size();
+        chunk.situationsCsv = sit.toString();
+        chunk.partiesCsv = parties.toString();
+        chunk.positionsCsv = positions.toString();
+        return chunk;
+    }
+
+    // ── Chargement ──
+
+    private void load(Connection c, CopyManager copy, Chunk chunk, String source) throws SQLException, IOException {
+        if (chunk.games > 0) {
+            copy.copyIn("COPY import_situation FROM STDIN WITH (FORMAT csv)", new StringReader(chunk.situationsCsv));
+            copy.copyIn("COPY import_partie(ord, pos_key, sequence, nb_coups, winner, mode, regle) FROM STDIN WITH (FORMAT csv)",
+                    new StringReader(chunk.partiesCsv));
+            if (!chunk.positionsCsv.isEmpty())
+                copy.copyIn("COPY import_position FROM STDIN WITH (FORMAT csv)", new StringReader(chunk.positionsCsv));
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate(MERGE_SITUATIONS);
+                st.executeUpdate(ASSIGN_PARTIE_IDS);
+                st.executeUpdate(MERGE_PARTIES);
+                if (!chunk.positionsCsv.isEmpty()) st.executeUpdate(MERGE_POSITIONS);
+            }
+        }
+        if (resume) {
+            try (PreparedStatement ps = c.prepareStatement(SAVE_PROGRESS)) {
+                ps.setString(1, source);
+                ps.setLong(2, chunk.recordsDoneAfter);
+                ps.executeUpdate();
+            }
+        }
+    }
+
+    private long recordsDone(String source) throws SQLException {
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement("SELECT records_done FROM import_progress WHERE source = ?")) {
+            ps.setString(1, source);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() ? rs.getLong(1) : 0;
+            }
+        }
+    }
+
+    // ── Sources ──
+
+    private static String sourceId(File source) throws IOException {
+        return source.getCanonicalPath();
+    }
+
+    // Fichiers de la source, dans un ordre stable (indispensable à la reprise)
+    private static List<File> listFiles(File source) throws IOException {
+        if (!source.isDirectory()) return List.of(source);
+        try (Stream<Path> walk = Files.walk(source.toPath())) {
+            return walk.filter(Files::isRegularFile).sorted().map(Path::toFile).collect(Collectors.toList());
+        }
+    }
+
+    // Ancien format (contenu sans partie) : les chiffres 1-9 du nom du fichier, vide s'il n'en a pas
+    private static String legacySequence(File f) {
+        return f.getName().replaceAll("(?i)\\.txt$", "").replaceAll("[^1-9]", "");
+    }
+
+    // Vrai si la première ligne utile du fichier commence par une séquence de coups
+    private static boolean hasRecords(File f) throws IOException {
+        // ISO-8859-1 : lit n'importe quel octet, les anciens fichiers n'étant pas forcément du texte
+        try (BufferedReader in = Files.newBufferedReader(f.toPath(), StandardCharsets.ISO_8859_1)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                return line.charAt(0) >= '1' && line.charAt(0) <= '9';
+            }
+        }
+        return false;
+    }
+
+    /** Paquet rejoué, prêt pour COPY. */
+    private static final class Chunk {
+        int records;           // enregistrements lus, y compris ignorés
+        long recordsDoneAfter; // position dans la source une fois le paquet validé
+        int games;
+        int situations;
+        int rejected;
+        String situationsCsv;
+        String partiesCsv;
+        String positionsCsv;   // vide sauf si allPositions
+    }
+
+    /** Compteurs et débit de l'import en cours. */
+    private static final class Progress {
+        final String source;
+        final long start = System.nanoTime();
+        long lastReport = start;
+        long records;
+        long games;
+        long rows;
+        long rejected;
+
+        Progress(String source, long records) {
+            this.source = source;
+            this.records = records;
+        }
+
+        void add(Chunk chunk) {
+            records += chunk.records;
+            games += chunk.games;
+            rows += chunk.games + chunk.situations;
+            rejected += chunk.rejected;
+        }
+
+        void reportIfDue() {
+            if (System.nanoTime() - lastReport >= REPORT_INTERVAL_NANOS) report();
+        }
+
+        void report() {
+            lastReport = System.nanoTime();
+            double secs = Math.max((lastReport - start) / 1e9, 1e-9);
+            System.out.printf("Import %s : %d enregistrements lus, %d parties, %d lignes écrites, %d rejetées, " +
+                    "%.0f parties/s, %.0f lignes/s%n",
+                    source, records, games, rows, rejected, games / secs, rows / secs);
+        }
+    }
+}
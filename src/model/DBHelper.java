@@ -1,40 +1,171 @@
 package model;
 
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Accès PostgreSQL.
+ *
+ * Les connexions viennent d'un pool borné partagé par tous les DBHelper pointant vers la même
+ * base (l'interface en crée un par fenêtre / partie) : close() sur une connexion obtenue par
+ * getConnection() la rend au pool au lieu de la fermer. Les requêtes préparées sont mises en
+ * cache par le driver sur chaque connexion physique (prepareThreshold=1), donc une requête
+ * préparée à nouveau sur une connexion recyclée réutilise le plan côté serveur.
+ * Le schéma n'est créé qu'une fois par base et par JVM.
+ */
 public class DBHelper {
+    private static final int DEFAULT_POOL_SIZE = 8;
+    private static final long ACQUIRE_TIMEOUT_SECONDS = 30;
+    private static final Map<String, Pool> POOLS = new ConcurrentHashMap<>();
+
     private final String url;
     private final String user;
     private final String password;
+    private final Pool pool;
 
     public DBHelper(String host, int port, String dbName, String user, String password) {
+        this(host, port, dbName, user, password, DEFAULT_POOL_SIZE);
+    }
+
+    /** maxPoolSize ne compte que pour le premier DBHelper créé sur cette base. */
+    public DBHelper(String host, int port, String dbName, String user, String password, int maxPoolSize) {
         this.url = "jdbc:postgresql://" + host + ":" + port + "/" + dbName;
         this.user = user;
         this.password = password;
+        this.pool = POOLS.computeIfAbsent(poolKey(), k -> new Pool(maxPoolSize));
+    }
+
+    /** Identifie la base (et l'utilisateur) : même valeur pour tous les DBHelper d'un même pool. */
+    String poolKey() {
+        return url + "|" + user;
     }
 
+    /**
+     * Emprunte une connexion au pool (attend si toutes sont prises).
+     * La fermer la rend au pool, en mode auto-commit.
+     */
     public Connection getConnection() throws SQLException {
-        return DriverManager.getConnection(url, user, password);
+        long t0 = System.nanoTime();
+        try {
+            if (!pool.permits.tryAcquire(ACQUIRE_TIMEOUT_SECONDS, TimeUnit.SECONDS))
+                throw new SQLException("pool de connexions épuisé (" + pool.maxSize + ")");
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("attente d'une connexion interrompue", ex);
+        }
+        pool.waitNanos.addAndGet(System.nanoTime() - t0);
+        pool.acquired.incrementAndGet();
+        Connection raw;
+        try {
+            raw = pool.idle.pollFirst();
+            if (raw == null || raw.isClosed()) raw = openConnection();
+        } catch (SQLException ex) {
+            pool.permits.release();
+            throw ex;
+        }
+        pool.active.incrementAndGet();
+        return wrap(raw);
     }
 
+    private Connection openConnection() throws SQLException {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("prepareThreshold", "1");             // préparé côté serveur dès la 1re exécution
+        props.setProperty("preparedStatementCacheQueries", "256");
+        return DriverManager.getConnection(url, props);
+    }
+
+    // proxy dont close() rend la connexion physique au pool
+    private Connection wrap(Connection raw) {
+        boolean[] released = { false };
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class }, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            if (!released[0]) { released[0] = true; release(raw); }
+                            return null;
+                        case "isClosed":
+                            return released[0] || raw.isClosed();
+                        default:
+                            if (released[0]) throw new SQLException("connexion déjà rendue au pool");
+                            try {
+                                return method.invoke(raw, args);
+                            } catch (InvocationTargetException ex) {
+                                throw ex.getCause();
+                            }
+                    }
+                });
+    }
+
+    private void release(Connection raw) {
+        try {
+            if (!raw.isClosed()) {
+                if (!raw.getAutoCommit()) {
+                    raw.rollback(); // transaction laissée ouverte par l'appelant
+                    raw.setAutoCommit(true);
+                }
+                pool.idle.offerFirst(raw);
+            }
+        } catch (SQLException ex) {
+            try { raw.close(); } catch (SQLException ignored) { }
+        } finally {
+            pool.active.decrementAndGet();
+            pool.permits.release();
+        }
+    }
+
+    /** Crée les tables et index si besoin ; exécuté une seule fois par base. */
     public void initDatabase() throws SQLException {
+        if (pool.schemaReady) return;
+        synchronized (pool) {
+            if (pool.schemaReady) return;
+            createSchema();
+            pool.schemaReady = true;
+        }
+    }
+
+    private void createSchema() throws SQLException {
         try (Connection c = getConnection(); Statement st = c.createStatement()) {
-            // Table situation : états uniques du plateau encodés en base 3 hex
+            // Table situation : états uniques du plateau, clé binaire de taille fixe (PositionKey)
             st.execute(
                 "CREATE TABLE IF NOT EXISTS situation (" +
                 "  id            SERIAL PRIMARY KEY," +
-                "  base3_hex     TEXT NOT NULL UNIQUE," +  // forme canonique = min(hex, sym_hex)
-                "  sym_base3_hex TEXT NOT NULL," +          // symétrique horizontal
+                "  pos_key       BYTEA," +                  // forme canonique = min(clé, clé miroir)
+                "  sym_pos_key   BYTEA," +                  // symétrique horizontal
                 "  nb_parties    INTEGER DEFAULT 1," +      // mutualisé : nb de parties y menant
                 "  move_number   INTEGER," +                // profondeur du coup
-                "  resultat      INTEGER" +                 // NULL=en cours, 0=nul, 1=j1, 2=j2
+                "  resultat      INTEGER," +                // NULL=en cours, 0=nul, 1=j1, 2=j2
+                "  nb_victoires_j1 INTEGER DEFAULT 0," +    // issues des parties passées par ici
+                "  nb_victoires_j2 INTEGER DEFAULT 0," +
+                "  nb_nuls       INTEGER DEFAULT 0" +
                 ")"
             );
-            st.execute("CREATE INDEX IF NOT EXISTS idx_situation_base3 ON situation(base3_hex)");
-            st.execute("CREATE INDEX IF NOT EXISTS idx_situation_sym   ON situation(sym_base3_hex)");
+            migrateBase3Keys(c, st);
+            // bases antérieures aux compteurs de résultats
+            st.execute("ALTER TABLE situation ADD COLUMN IF NOT EXISTS nb_victoires_j1 INTEGER DEFAULT 0");
+            st.execute("ALTER TABLE situation ADD COLUMN IF NOT EXISTS nb_victoires_j2 INTEGER DEFAULT 0");
+            st.execute("ALTER TABLE situation ADD COLUMN IF NOT EXISTS nb_nuls INTEGER DEFAULT 0");
+            st.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_situation_pos_key ON situation(pos_key)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_situation_sym ON situation(sym_pos_key)");
+            // préchargement de OpeningBook : débuts de partie les plus joués
+            st.execute("CREATE INDEX IF NOT EXISTS idx_situation_move ON situation(move_number, nb_parties DESC)");
+            st.execute("ALTER TABLE situation ALTER COLUMN pos_key SET NOT NULL");
 
             // Table partie : progression (séquence de coups menant à une situation)
             st.execute(
@@ -46,10 +177,195 @@ public class DBHelper {
                 "  winner       INTEGER DEFAULT 0," + // 0=en cours, 1=j1, 2=j2
                 "  mode         VARCHAR(20) CHECK (mode IN " +
                 "      ('HUMAN_VS_HUMAN','HUMAN_VS_AI','AI_VS_AI'))," +
+                "  regle        VARCHAR(16) NOT NULL DEFAULT '9x9x4'," + // Rules.code() : colonnes x lignes x alignement
                 "  created_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
                 ")"
             );
+            // bases antérieures aux règles configurables : tout y est en 9x9
+            st.execute("ALTER TABLE partie ADD COLUMN IF NOT EXISTS regle VARCHAR(16) NOT NULL DEFAULT '9x9x4'");
             st.execute("CREATE INDEX IF NOT EXISTS idx_partie_situation ON partie(situation_id)");
+            // Filtres de DBViewer : chaque critère + id pour garder l'ordre de pagination
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_winner   ON partie(winner, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_mode     ON partie(mode, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_regle    ON partie(regle, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_nb_coups ON partie(nb_coups, id)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_created  ON partie(created_at)");
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_sequence ON partie(sequence text_pattern_ops)"); // LIKE 'préfixe%'
+
+            // Positions traversées par chaque partie (rempli si toutes les positions sont indexées)
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS partie_position (" +
+                "  situation_id INTEGER REFERENCES situation(id) ON DELETE CASCADE," +
+                "  partie_id    INTEGER REFERENCES partie(id) ON DELETE CASCADE," +
+                "  PRIMARY KEY (situation_id, partie_id)" +
+                ")"
+            );
+            st.execute("CREATE INDEX IF NOT EXISTS idx_partie_position_partie ON partie_position(partie_id)");
+
+            // Résultats prouvés par le solveur (ProvenResults), à part : situation ne compte que
+            // des positions réellement jouées (nb_parties, statistiques du livre d'ouvertures)
+            boolean provenExists;
+            try (ResultSet rs = c.getMetaData().getTables(null, null, "situation_prouvee", null)) {
+                provenExists = rs.next();
+            }
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS situation_prouvee (" +
+                "  pos_key     BYTEA PRIMARY KEY," +    // forme canonique, comme situation.pos_key
+                "  sym_pos_key BYTEA," +
+                "  move_number INTEGER," +
+                "  resultat    INTEGER NOT NULL" +      // vainqueur avec un jeu parfait : 0=nul, 1=j1, 2=j2
+                ")"
+            );
+            if (!provenExists) {
+                // anciennes versions : résultats prouvés écrits dans situation avec nb_parties = 0
+                st.execute("INSERT INTO situation_prouvee(pos_key, sym_pos_key, move_number, resultat) " +
+                           "SELECT pos_key, sym_pos_key, move_number, resultat FROM situation " +
+                           "WHERE nb_parties = 0 AND resultat IS NOT NULL ON CONFLICT (pos_key) DO NOTHING");
+                st.execute("DELETE FROM situation WHERE nb_parties = 0 AND resultat IS NOT NULL");
+            }
+
+            // Reprise des imports en masse : enregistrements validés par source (BulkImporter)
+            st.execute(
+                "CREATE TABLE IF NOT EXISTS import_progress (" +
+                "  source       TEXT PRIMARY KEY," +     // chemin canonique du fichier / dossier
+                "  records_done BIGINT NOT NULL," +
+                "  updated_at   TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                ")"
+            );
+        }
+    }
+
+    /** Lignes recalculées par transaction lors de la migration des clés base 3. */
+    private static final int MIGRATION_BATCH = 1000;
+
+    /**
+     * Bases créées avant les clés binaires : ajoute pos_key / sym_pos_key et les calcule
+     * à partir de l'ancien encodage base 3 hexadécimal (plateau 9×9), puis rend
+     * base3_hex / sym_base3_hex facultatifs (les nouvelles situations ne les remplissent pas).
+     * Le calcul se fait par tranches de MIGRATION_BATCH lignes, chacune validée à part :
+     * une grosse base ne tient pas un seul batch en mémoire ni une transaction géante,
+     * et une migration interrompue reprend là où elle s'est arrêtée (pos_key IS NULL).
+     * Sans effet sur une base récente.
+     */
+    private static void migrateBase3Keys(Connection c, Statement st) throws SQLException {
+        st.execute("ALTER TABLE situation ADD COLUMN IF NOT EXISTS pos_key BYTEA");
+        st.execute("ALTER TABLE situation ADD COLUMN IF NOT EXISTS sym_pos_key BYTEA");
+        boolean legacy;
+        try (ResultSet rs = c.getMetaData().getColumns(null, null, "situation", "base3_hex")) {
+            legacy = rs.next();
+        }
+        if (!legacy) return;
+
+        st.execute("ALTER TABLE situation ALTER COLUMN base3_hex DROP NOT NULL");
+        try (ResultSet rs = c.getMetaData().getColumns(null, null, "situation", "sym_base3_hex")) {
+            if (rs.next()) st.execute("ALTER TABLE situation ALTER COLUMN sym_base3_hex DROP NOT NULL");
+        }
+
+        // Parcours par id croissant (pas de curseur : il ne survivrait pas aux commits)
+        boolean autoCommit = c.getAutoCommit();
+        c.setAutoCommit(false);
+        try (PreparedStatement sel = c.prepareStatement(
+                     "SELECT id, base3_hex FROM situation WHERE pos_key IS NULL AND id > ? ORDER BY id LIMIT ?");
+             PreparedStatement upd = c.prepareStatement(
+                     "UPDATE situation SET pos_key = ?, sym_pos_key = ? WHERE id = ?")) {
+            int lastId = Integer.MIN_VALUE;
+            while (true) {
+                int n = 0;
+                sel.setInt(1, lastId);
+                sel.setInt(2, MIGRATION_BATCH);
+                try (ResultSet rs = sel.executeQuery()) {
+                    while (rs.next()) {
+                        lastId = rs.getInt(1);
+                        int[][] board = fromBase3Hex(rs.getString(2), 9, 9);
+                        PositionKey key = PositionKey.of(board);
+                        PositionKey sym = PositionKey.of(mirror(board));
+                        PositionKey canonical = PositionKey.min(key, sym);
+                        upd.setBytes(1, canonical.toBytes());
+                        upd.setBytes(2, (canonical == key ? sym : key).toBytes());
+                        upd.setInt(3, lastId);
+                        upd.addBatch();
+                        n++;
+                    }
+                }
+                if (n == 0) break;
+                upd.executeBatch();
+                c.commit();
+            }
+        } catch (SQLException ex) {
+            c.rollback();
+            throw ex;
+        } finally {
+            c.setAutoCommit(autoCommit);
+        }
+    }
+
+    // Ancien encodage : entier base 3, ligne par ligne depuis le haut, en hexadécimal
+    private static int[][] fromBase3Hex(String hex, int rows, int cols) {
+        int[][] board = new int[rows][cols];
+        BigInteger value = new BigInteger(hex, 16);
+        BigInteger three = BigInteger.valueOf(3);
+        for (int i = rows * cols - 1; i >= 0; i--) {
+            BigInteger[] qr = value.divideAndRemainder(three);
+            board[i / cols][i % cols] = qr[1].intValue();
+            value = qr[0];
+        }
+        return board;
+    }
+
+    private static int[][] mirror(int[][] board) {
+        int cols = board[0].length;
+        int[][] sym = new int[board.length][cols];
+        for (int r = 0; r < board.length; r++)
+            for (int col = 0; col < cols; col++) sym[r][col] = board[r][cols - 1 - col];
+        return sym;
+    }
+
+    // ── Métriques du pool ──
+
+    /** Connexions actuellement empruntées. */
+    public int getActiveConnections() { return pool.active.get(); }
+
+    /** Connexions physiques ouvertes et disponibles. */
+    public int getIdleConnections() { return pool.idle.size(); }
+
+    /** Nombre total d'emprunts depuis le démarrage. */
+    public long getAcquireCount() { return pool.acquired.get(); }
+
+    /** Temps total passé à attendre une connexion libre (ns). */
+    public long getTotalWaitNanos() { return pool.waitNanos.get(); }
+
+    public double getAverageWaitMillis() {
+        long n = pool.acquired.get();
+        return n == 0 ? 0 : pool.waitNanos.get() / 1e6 / n;
+    }
+
+    public String poolStats() {
+        return String.format("pool %s : %d actives, %d libres, max %d, %d emprunts, attente moy. %.3f ms",
+                url, getActiveConnections(), getIdleConnections(), pool.maxSize,
+                getAcquireCount(), getAverageWaitMillis());
+    }
+
+    /** Ferme les connexions libres du pool (les connexions empruntées restent valides). */
+    public void closeIdleConnections() {
+        Connection c;
+        while ((c = pool.idle.pollFirst()) != null) {
+            try { c.close(); } catch (SQLException ignored) { }
+        }
+    }
+
+    /** État partagé par tous les DBHelper d'une même base. */
+    private static final class Pool {
+        final int maxSize;
+        final Semaphore permits;
+        final LinkedBlockingDeque<Connection> idle = new LinkedBlockingDeque<>();
+        final AtomicInteger active = new AtomicInteger();
+        final AtomicLong acquired = new AtomicLong();
+        final AtomicLong waitNanos = new AtomicLong();
+        volatile boolean schemaReady;
+
+        Pool(int maxSize) {
+            this.maxSize = maxSize;
+            this.permits = new Semaphore(maxSize, true);
         }
     }
 }
@@ -2,32 +2,69 @@ package model;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class Game {
-    private final int rows = 9;
-    private final int cols = 9;
-    private final int winLength = 4;
-    private final int[][] board;
+    private static final int[][] DIRS = { {0,1}, {1,0}, {1,1}, {1,-1} }; // horizontal, vertical, diag1, diag2
+    private static final AtomicLong NEXT_ID = new AtomicLong(1);
+
+    private long id = NEXT_ID.getAndIncrement();
+
+    private final Rules rules;
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+    private final BitBoard board;
     private int currentPlayer = 1;
     private boolean gameOver = false;
     private int[][] winningPositions = null;
     private final List<Integer> moveHistory = new ArrayList<>();
 
     public Game() {
-        board = new int[rows][cols];
+        this(Rules.DEFAULT);
+    }
+
+    public Game(Rules rules) {
+        this.rules = rules;
+        this.rows = rules.getRows();
+        this.cols = rules.getCols();
+        this.winLength = rules.getWinLength();
+        board = new BitBoard(rows, cols, winLength);
     }
 
+    private Game(Game other) {
+        id = other.id;
+        rules = other.rules;
+        rows = other.rows;
+        cols = other.cols;
+        winLength = other.winLength;
+        board = other.board.copy();
+        currentPlayer = other.currentPlayer;
+        gameOver = other.gameOver;
+        winningPositions = other.winningPositions;
+        moveHistory.addAll(other.moveHistory);
+    }
+
+    /** Independent snapshot of the game, e.g. to search it on another thread while this one is played. */
+    public Game copy() { return new Game(this); }
+
+    public Rules getRules() { return rules; }
+
+    /** Identifies the game in the event log (unique within the process, kept by copy(), renewed by reset()). */
+    public long getId() { return id; }
+
     public int getRows() { return rows; }
     public int getCols() { return cols; }
 
-    public int getCell(int r, int c) { return board[r][c]; }
+    public int getCell(int r, int c) { return board.getCell(r, c); }
 
     public int getCurrentPlayer() { return currentPlayer; }
 
     public boolean isGameOver() { return gameOver; }
 
     public void reset() {
-        for (int i = 0; i < rows; i++) for (int j = 0; j < cols; j++) board[i][j] = 0;
+        id = NEXT_ID.getAndIncrement();
+        board.clear();
         currentPlayer = 1;
         gameOver = false;
         winningPositions = null;
@@ -36,61 +73,46 @@ public class Game {
 
     public int drop(int c) {
         if (gameOver) return -1;
-        if (c < 0 || c >= cols) return -1;
-        for (int r = rows - 1; r >= 0; r--) {
-            if (board[r][c] == 0) {
-                board[r][c] = currentPlayer;
-                // record move as 1-based column index for storage
-                moveHistory.add(c + 1);
-                boolean win = checkWin(r, c);
-                if (win) gameOver = true;
-                else currentPlayer = 3 - currentPlayer;
-                return r;
-            }
+        int r = board.play(c);
+        if (r < 0) return -1;
+        // record move as 1-based column index for storage
+        moveHistory.add(c + 1);
+        if (board.hasWon(currentPlayer)) {
+            gameOver = true;
+            winningPositions = collectWinningPositions(r, c, currentPlayer);
+        } else {
+            currentPlayer = 3 - currentPlayer;
         }
-        return -1;
+        return r;
     }
 
     public void undo() {
         if (moveHistory.isEmpty() || gameOver) return;
-        int lastCol = moveHistory.remove(moveHistory.size() - 1) - 1; // convert back to 0-based
-        for (int r = 0; r < rows; r++) {
-            if (board[r][lastCol] != 0) {
-                board[r][lastCol] = 0;
-                currentPlayer = 3 - currentPlayer;
-                gameOver = false;
-                winningPositions = null;
-                break;
-            }
-        }
+        moveHistory.remove(moveHistory.size() - 1);
+        board.undo();
+        currentPlayer = 3 - currentPlayer;
+        gameOver = false;
+        winningPositions = null;
     }
 
-    private boolean checkWin(int r, int c) {
-        int p = board[r][c];
-        if (p == 0) return false;
-        // directions: horizontal, vertical, diag1, diag2
-        int[][] dirs = { {0,1}, {1,0}, {1,1}, {1,-1} };
-        for (int[] d : dirs) {
-            int cnt = 1;
-            cnt += countDirection(r, c, d[0], d[1], p);
-            cnt += countDirection(r, c, -d[0], -d[1], p);
-            if (cnt >= winLength) {
-                winningPositions = collectWinningPositions(r, c, d[0], d[1], winLength, p);
-                return true;
-            }
+    // only called once a win has been detected by the bitboard
+    private int[][] collectWinningPositions(int r, int c, int p) {
+        for (int[] d : DIRS) {
+            int cnt = 1 + countDirection(r, c, d[0], d[1], p) + countDirection(r, c, -d[0], -d[1], p);
+            if (cnt >= winLength) return collectWinningPositions(r, c, d[0], d[1], winLength, p);
         }
-        return false;
+        return null;
     }
 
     private int[][] collectWinningPositions(int r, int c, int dr, int dc, int winLen, int p) {
         List<int[]> list = new ArrayList<>();
         list.add(new int[]{r, c});
         int rr = r + dr, cc = c + dc;
-        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board[rr][cc] == p && list.size() < winLen) {
+        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board.getCell(rr, cc) == p && list.size() < winLen) {
             list.add(new int[]{rr, cc}); rr += dr; cc += dc;
         }
         rr = r - dr; cc = c - dc;
-        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board[rr][cc] == p && list.size() < winLen) {
+        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board.getCell(rr, cc) == p && list.size() < winLen) {
             list.add(0, new int[]{rr, cc}); rr -= dr; cc -= dc;
         }
         // if more than winLen, trim center portion
@@ -109,17 +131,19 @@ public class Game {
     private int countDirection(int r, int c, int dr, int dc, int p) {
         int cnt = 0;
         int rr = r + dr, cc = c + dc;
-        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board[rr][cc] == p) {
+        while (rr >= 0 && rr < rows && cc >= 0 && cc < cols && board.getCell(rr, cc) == p) {
             cnt++; rr += dr; cc += dc;
         }
         return cnt;
     }
 
-    public int[][] getBoardCopy() {
-        int[][] copy = new int[rows][cols];
-        for (int i = 0; i < rows; i++) System.arraycopy(board[i], 0, copy[i], 0, cols);
-        return copy;
-    }
+    public int[][] getBoardCopy() { return board.toArray(); }
+
+    /** Independent copy of the bitboard engine, for search. */
+    public BitBoard getBitBoardCopy() { return board.copy(); }
+
+    // live engine, read-only for the search which copies it into its own boards
+    BitBoard bitBoard() { return board; }
 
     public int getWinLength() { return winLength; }
 
@@ -127,6 +151,9 @@ public class Game {
 
     public List<Integer> getMoveHistory() { return new ArrayList<>(moveHistory); }
 
+    /** Number of moves played, without copying the history. */
+    public int getMoveCount() { return moveHistory.size(); }
+
     public int getWinner() { return gameOver ? currentPlayer : 0; }
 
     // Static helpers to simulate on a board copy
@@ -146,8 +173,7 @@ public class Game {
     public static boolean checkWinOnBoard(int[][] board, int r, int c, int winLength) {
         int p = board[r][c];
         if (p == 0) return false;
-        int[][] dirs = { {0,1}, {1,0}, {1,1}, {1,-1} };
-        for (int[] d : dirs) {
+        for (int[] d : DIRS) {
             int cnt = 1;
             cnt += countDirectionOnBoard(board, r, c, d[0], d[1], p);
             cnt += countDirectionOnBoard(board, r, c, -d[0], -d[1], p);
@@ -0,0 +1,299 @@
+package model;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Structured game events (move played, invalid move, undo, game over, game saved) written as
+ * JSON lines, one object per event:
+ *
+ *   {"t":1700000000000,"ev":"move","game":3,"ply":5,"player":1,"col":4,"row":8}
+ *   {"t":1700000000123,"ev":"over","game":3,"winner":1,"rules":"9x9x4","seq":"55464"}
+ *
+ * Game threads only publish into a bounded lock-free ring buffer (multi-producer, one slot
+ * sequence per entry) and never wait: when the buffer is full the event is dropped and
+ * counted. A single daemon thread drains it to the file, flushing whenever it runs dry.
+ * {@link #read(Path)} and {@link #replay(Path)} read a log back.
+ *
+ * Columns are 0-based and rows count from the top, as in Game.drop; "seq" is the 1-based
+ * column string stored in partie.sequence.
+ */
+public final class GameEventLog implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /** Event kinds, with their "ev" name in the log. */
+    public enum Type {
+        MOVE("move"), INVALID_MOVE("invalid"), UNDO("undo"), GAME_OVER("over"), GAME_SAVED("saved");
+
+        final String tag;
+        Type(String tag) { this.tag = tag; }
+
+        static Type of(String tag) {
+            for (Type t : values()) if (t.tag.equals(tag)) return t;
+            throw new IllegalArgumentException("unknown event " + tag);
+        }
+    }
+
+    /** One event; fields that do not apply to its type are -1 (numbers) or null. */
+    public static final class Event {
+        public final Type type;
+        public final long time;     // epoch millis
+        public final long game;     // Game.getId()
+        public final int ply;       // moves on the board before it (MOVE, INVALID_MOVE, UNDO)
+        public final int player;
+        public final int col;
+        public final int row;
+        public final int winner;    // GAME_OVER: 0 = draw
+        public final long partieId; // GAME_SAVED
+        public final String rules;  // GAME_OVER: Rules.code()
+        public final String sequence;
+
+        Event(Type type, long time, long game, int ply, int player, int col, int row,
+              int winner, long partieId, String rules, String sequence) {
+            this.type = type;
+            this.time = time;
+            this.game = game;
+            this.ply = ply;
+            this.player = player;
+            this.col = col;
+            this.row = row;
+            this.winner = winner;
+            this.partieId = partieId;
+            this.rules = rules;
+            this.sequence = sequence;
+        }
+
+        /** The event as one JSON object, without the line break. */
+        public String toJson() {
+            StringBuilder sb = new StringBuilder(96);
+            sb.append("{\"t\":").append(time).append(",\"ev\":\"").append(type.tag).append("\",\"game\":").append(game);
+            if (ply >= 0) sb.append(",\"ply\":").append(ply);
+            if (player >= 0) sb.append(",\"player\":").append(player);
+            if (col >= 0) sb.append(",\"col\":").append(col);
+            if (row >= 0) sb.append(",\"row\":").append(row);
+            if (winner >= 0) sb.append(",\"winner\":").append(winner);
+            if (partieId >= 0) sb.append(",\"partie\":").append(partieId);
+            if (rules != null) sb.append(",\"rules\":\"").append(rules).append('"');
+            if (sequence != null) sb.append(",\"seq\":\"").append(sequence).append('"');
+            return sb.append('}').toString();
+        }
+
+        /** Parses a line written by toJson() (flat object, numbers and plain strings only). */
+        public static Event fromJson(String line) {
+            Map<String, String> f = new LinkedHashMap<>();
+            String body = line.trim();
+            if (!body.startsWith("{") || !body.endsWith("}")) throw new IllegalArgumentException("not an event: " + line);
+            for (String part : body.substring(1, body.length() - 1).split(",")) {
+                int colon = part.indexOf(':');
+                if (colon < 0) throw new IllegalArgumentException("not an event: " + line);
+                String k = unquote(part.substring(0, colon)), v = unquote(part.substring(colon + 1));
+                f.put(k, v);
+            }
+            return new Event(Type.of(f.get("ev")), num(f, "t"), num(f, "game"), (int) num(f, "ply"),
+                    (int) num(f, "player"), (int) num(f, "col"), (int) num(f, "row"), (int) num(f, "winner"),
+                    num(f, "partie"), f.get("rules"), f.get("seq"));
+        }
+
+        private static String unquote(String s) {
+            s = s.trim();
+            return s.length() >= 2 && s.charAt(0) == '"' ? s.substring(1, s.length() - 1) : s;
+        }
+
+        private static long num(Map<String, String> f, String k) {
+            String v = f.get(k);
+            return v == null ? -1 : Long.parseLong(v);
+        }
+
+        @Override
+        public String toString() { return toJson(); }
+    }
+
+    private static volatile GameEventLog global;
+
+    // ring buffer: slot i is free for position p when sequence[i] == p, readable when p + 1
+    private final Event[] slots;
+    private final AtomicLongArray sequence;
+    private final int mask;
+    // next position to claim; CLOSED is set in the same word so no claim can follow the close
+    private final AtomicLong tail = new AtomicLong();
+    private static final long CLOSED = Long.MIN_VALUE;
+    private long head; // consumer only
+
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final Writer out;
+    private final Thread appender;
+
+    /** Appends to file (created if needed) through a buffer of capacity events (rounded up to a power of two). */
+    public GameEventLog(Path file, int capacity) throws IOException {
+        this(Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.WRITE), capacity);
+    }
+
+    public GameEventLog(Writer out, int capacity) {
+        int cap = Integer.highestOneBit(Math.max(2, capacity - 1)) << 1;
+        this.slots = new Event[cap];
+        this.sequence = new AtomicLongArray(cap);
+        for (int i = 0; i < cap; i++) sequence.set(i, i);
+        this.mask = cap - 1;
+        this.out = out instanceof BufferedWriter ? out : new BufferedWriter(out);
+        this.appender = new Thread(this::drainLoop, "game-events");
+        appender.setDaemon(true);
+        appender.start();
+    }
+
+    /** Log used by ControllerJeu and PartieDAO; null (the default) = events are not recorded. */
+    public static GameEventLog global() { return global; }
+
+    /** Installs the process-wide log, closing the previous one. */
+    public static synchronized void setGlobal(GameEventLog log) {
+        GameEventLog old = global;
+        global = log;
+        if (old != null && old != log) old.close();
+    }
+
+    public void movePlayed(Game game, int ply, int player, int col, int row) {
+        publish(new Event(Type.MOVE, System.currentTimeMillis(), game.getId(), ply, player, col, row, -1, -1, null, null));
+    }
+
+    public void invalidMove(Game game, int col) {
+        publish(new Event(Type.INVALID_MOVE, System.currentTimeMillis(), game.getId(),
+                game.getMoveCount(), game.getCurrentPlayer(), col, -1, -1, -1, null, null));
+    }
+
+    public void undo(Game game, int ply) {
+        publish(new Event(Type.UNDO, System.currentTimeMillis(), game.getId(), ply, -1, -1, -1, -1, -1, null, null));
+    }
+
+    /** End of the game: winner, or 0 for a draw. */
+    public void gameOver(Game game) {
+        StringBuilder seq = new StringBuilder();
+        for (int c : game.getMoveHistory()) seq.append(c);
+        publish(new Event(Type.GAME_OVER, System.currentTimeMillis(), game.getId(), -1, -1, -1, -1,
+                game.getWinner(), -1, game.getRules().code(), seq.toString()));
+    }
+
+    public void gameSaved(long gameId, long partieId) {
+        publish(new Event(Type.GAME_SAVED, System.currentTimeMillis(), gameId, -1, -1, -1, -1, -1, partieId, null, null));
+    }
+
+    /** Non-blocking: false (and counted as dropped) if the buffer is full or the log closed. */
+    public boolean publish(Event e) {
+        while (true) {
+            long pos = tail.get();
+            if (pos < 0) { // CLOSED
+                dropped.incrementAndGet();
+                return false;
+            }
+            int i = (int) pos & mask;
+            long diff = sequence.get(i) - pos;
+            if (diff == 0) {
+                if (tail.compareAndSet(pos, pos + 1)) {
+                    slots[i] = e;
+                    sequence.set(i, pos + 1); // publishes the slot to the appender
+                    return true;
+                }
+            } else if (diff < 0) {
+                dropped.incrementAndGet(); // full: the appender is a whole buffer behind
+                return false;
+            }
+            // else another producer took pos first, retry with the new tail
+        }
+    }
+
+    private Event poll() {
+        int i = (int) head & mask;
+        if (sequence.get(i) != head + 1) return null;
+        Event e = slots[i];
+        slots[i] = null;
+        sequence.set(i, head + slots.length); // free for the producer one lap later
+        head++;
+        return e;
+    }
+
+    private void drainLoop() {
+        try {
+            while (true) {
+                Event e = poll();
+                if (e != null) {
+                    out.write(e.toJson());
+                    out.write('\n');
+                    written.incrementAndGet();
+                    continue;
+                }
+                out.flush();
+                // closed: every position claimed before the close is written, none can follow
+                long t = tail.get();
+                if (t < 0 && head == (t & ~CLOSED)) break;
+                LockSupport.parkNanos(1_000_000L);
+            }
+        } catch (IOException ex) {
+            dropped.addAndGet(closeTail() - head); // claimed but never written
+            ex.printStackTrace();
+        } finally {
+            try { out.close(); } catch (IOException ignored) { }
+        }
+    }
+
+    /** Events lost because the buffer was full (or the log closed). */
+    public long getDroppedCount() { return dropped.get(); }
+
+    /** Events written to the file so far. */
+    public long getWrittenCount() { return written.get(); }
+
+    // sets CLOSED on tail; returns the final tail (positions below it were claimed)
+    private long closeTail() {
+        while (true) {
+            long t = tail.get();
+            if (t < 0) return t & ~CLOSED;
+            if (tail.compareAndSet(t, t | CLOSED)) return t;
+        }
+    }
+
+    /** Stops accepting events, writes those still buffered and closes the file. */
+    @Override
+    public void close() {
+        closeTail();
+        LockSupport.unpark(appender);
+        try {
+            appender.join(10_000);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Every event of a log file, in order. */
+    public static List<Event> read(Path file) throws IOException {
+        List<Event> events = new ArrayList<>();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            for (String line; (line = in.readLine()) != null; )
+                if (!line.isEmpty()) events.add(Event.fromJson(line));
+        }
+        return events;
+    }
+
+    /** Rebuilds the finished games of a log from their GAME_OVER events, in order of completion. */
+    public static List<Game> replay(Path file) throws IOException {
+        List<Game> games = new ArrayList<>();
+        for (Event e : read(file)) {
+            if (e.type != Type.GAME_OVER || e.sequence == null) continue;
+            Game g = new Game(e.rules != null ? Rules.parse(e.rules) : Rules.DEFAULT);
+            for (int i = 0; i < e.sequence.length(); i++) g.drop(e.sequence.charAt(i) - '1');
+            games.add(g);
+        }
+        return games;
+    }
+}
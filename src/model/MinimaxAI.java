@@ -1,116 +1,780 @@
 package model;
 
+import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class MinimaxAI {
+    /** MINIMAX = historical full-width search, ALPHA_BETA = pruned search with move ordering. */
+    public enum SearchMode { MINIMAX, ALPHA_BETA }
+
+    private static final int KILLER_BONUS = 1 << 20;
+    private static final int TT_MOVE_BONUS = 1 << 21;
+    private static final int THREAT_BONUS = 1 << 14; // per winning cell, history below it
+    private static final int THREAT_ORDER_DRAFT = 4;  // nearer the leaves history alone is cheaper
+    private static final int DEFAULT_TT_MEGABYTES = 16;
+    /** Empty cells at or below which the exact solver replaces the search. */
+    public static final int DEFAULT_SOLVER_THRESHOLD = 20;
+
+    // a win found at ply d scores WIN_SCORE - d (quicker win better), far above any window score
+    static final int WIN_SCORE = 10000;
+    private static final int MAX_PLY = 128;
+    private static final int EVAL_LIMIT = WIN_SCORE - MAX_PLY - 1;
+
     private final int maxDepth;
     private final int me;
+    private final SearchMode searchMode;
+    private final TranspositionTable tt; // kept across calls so consecutive moves reuse work, shared by all threads
+
+    // root splitting: worker i is only ever used by one task at a time
+    private int threads = 1;
+    private ForkJoinPool pool;
+    private Worker[] workers = { new Worker() };
+
+    private OpeningBook book;
+    private boolean lastMoveFromBook;
+
+    // endgame: exact solver below solverThreshold empty cells, results shared through the database
+    private int solverThreshold = DEFAULT_SOLVER_THRESHOLD;
+    private final int solverMegabytes;
+    private volatile Solver solver;
+    private ProvenResults proven;
+    private boolean lastMoveSolved;
+
+    // pondering: best move found for each opponent reply, keyed by the position hash
+    private PonderLine[] ponderLines = new PonderLine[0];
+
+    private long nodes;
+    private volatile int depthReached;
+    private SearchMetrics.MoveSource moveSource = SearchMetrics.MoveSource.SEARCH;
+    private SearchMetrics metrics = SearchMetrics.global();
+    private int rootScore;
+
+    // deadline and cancellation handling, shared by all workers
+    private volatile boolean timed;
+    private volatile boolean aborted;   // this search stops: deadline passed or token cancelled
+    private volatile long deadline;
+    private volatile SearchToken token = new SearchToken(); // of the current search
 
     public MinimaxAI(int me, int maxDepth) {
+        this(me, maxDepth, SearchMode.ALPHA_BETA);
+    }
+
+    public MinimaxAI(int me, int maxDepth, SearchMode searchMode) {
+        this(me, maxDepth, searchMode, DEFAULT_TT_MEGABYTES);
+    }
+
+    /** ttMegabytes = memory budget of the transposition table (ALPHA_BETA only, 0 disables it). */
+    public MinimaxAI(int me, int maxDepth, SearchMode searchMode, int ttMegabytes) {
         this.me = me;
         this.maxDepth = maxDepth;
+        this.searchMode = searchMode;
+        this.tt = searchMode == SearchMode.ALPHA_BETA && ttMegabytes > 0
+                ? new TranspositionTable(ttMegabytes) : null;
+        this.solverMegabytes = Math.max(1, ttMegabytes / 2);
+    }
+
+    /**
+     * Number of search threads for ALPHA_BETA (default 1). With more than one, the first root
+     * move is searched alone and the remaining root moves are spread over a ForkJoinPool,
+     * all threads sharing the transposition table. One thread keeps the search deterministic.
+     */
+    public void setThreads(int threads) {
+        if (threads < 1) throw new IllegalArgumentException("threads must be >= 1");
+        if (threads == this.threads) return;
+        if (pool != null) pool.shutdown();
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.workers = new Worker[threads];
+        for (int i = 0; i < threads; i++) workers[i] = new Worker();
+    }
+
+    public int getThreads() { return threads; }
+
+    /** Opening book consulted by chooseColumn before searching (null = none). */
+    public void setOpeningBook(OpeningBook book) { this.book = book; }
+
+    public OpeningBook getOpeningBook() { return book; }
+
+    /** True if the last chooseColumn answer came from the opening book (no search). */
+    public boolean isLastMoveFromBook() { return lastMoveFromBook; }
+
+    /**
+     * Number of empty cells at or below which chooseColumn solves the position exactly instead
+     * of searching it (default DEFAULT_SOLVER_THRESHOLD, 0 disables the solver).
+     */
+    public void setSolverThreshold(int emptyCells) { this.solverThreshold = Math.max(0, emptyCells); }
+
+    public int getSolverThreshold() { return solverThreshold; }
+
+    /** Proven results read before solving and written after (null = in memory only). */
+    public void setProvenResults(ProvenResults proven) { this.proven = proven; }
+
+    /** True if the last chooseColumn answer is a proven win or draw (no search). */
+    public boolean isLastMoveSolved() { return lastMoveSolved; }
+
+    /** Where search statistics go (default SearchMetrics.global()). */
+    public void setMetrics(SearchMetrics metrics) { this.metrics = metrics; }
+
+    /** Number of nodes visited by the last chooseColumn / columnScores call, all threads included. */
+    public long getNodeCount() { return nodes; }
+
+    /** Depth of the last completed iteration of the timed search (or maxDepth for a fixed-depth call). */
+    public int getDepthReached() { return depthReached; }
+
+    /**
+     * Nodes visited so far by the running search, all threads included. Approximate (read
+     * without synchronization), meant for progress display from another thread.
+     */
+    public long getLiveNodeCount() {
+        long total = 0;
+        for (Worker w : workers) total += w.nodes;
+        return total;
+    }
+
+    /**
+     * Stops the running ALPHA_BETA search from another thread; chooseColumn then returns
+     * early with a move that should be discarded. No effect on a search started afterwards,
+     * so a search submitted to another thread but not started yet is not stopped: give it a
+     * SearchToken (chooseColumn(game, budget, token)) and cancel that instead.
+     */
+    public void cancel() {
+        token.cancel();
+    }
+
+    /**
+     * Wall-clock speedup of a search with the given thread count over a single-threaded one,
+     * both from a cold transposition table at fixed depth on the same position.
+     */
+    public static double parallelSpeedup(Game game, int depth, int threads) {
+        int me = game.getCurrentPlayer();
+        MinimaxAI single = new MinimaxAI(me, depth);
+        long t0 = System.nanoTime();
+        single.chooseColumn(game);
+        long t1 = System.nanoTime();
+        MinimaxAI multi = new MinimaxAI(me, depth);
+        multi.setThreads(threads);
+        long t2 = System.nanoTime();
+        multi.chooseColumn(game);
+        long t3 = System.nanoTime();
+        multi.setThreads(1);
+        return (double) (t1 - t0) / Math.max(1L, t3 - t2);
     }
 
     public int chooseColumn(Game game) {
-        int[][] board = game.getBoardCopy();
-        int bestCol = -1;
-        int bestScore = Integer.MIN_VALUE;
-        for (int c = 0; c < game.getCols(); c++) {
-            int[][] copy = copyBoard(board);
-            int r = Game.dropOnBoard(copy, c, me);
-            if (r == -1) continue;
-            if (Game.checkWinOnBoard(copy, r, c, game.getWinLength())) return c; // immediate win
-            int score = minimax(copy, game.getWinLength(), 1, false, 3 - me);
-            if (score > bestScore) { bestScore = score; bestCol = c; }
-        }
-        if (bestCol == -1) {
-            // fallback: first non-full column
-            for (int c = 0; c < game.getCols(); c++) if (game.getCell(0, c) == 0) return c;
+        long t0 = System.nanoTime();
+        int col = fixedDepthMove(game);
+        metrics.recordMove(moveSource, System.nanoTime() - t0, nodes);
+        return col;
+    }
+
+    private int fixedDepthMove(Game game) {
+        BitBoard board = startSearch(game, new SearchToken());
+        depthReached = maxDepth;
+        int bestCol = immediateWin(board);
+        if (bestCol != -1) { moveSource = SearchMetrics.MoveSource.IMMEDIATE; return bestCol; }
+        if ((bestCol = bookMove(board)) != -1) return bestCol;
+        if ((bestCol = solvedMove(board, Long.MAX_VALUE)) != -1) return bestCol;
+        if (searchMode == SearchMode.MINIMAX) {
+            Worker w = workers[0];
+            w.depthLimit = maxDepth;
+            w.plyNodes[0]++;
+            int bestScore = Integer.MIN_VALUE;
+            for (int c = 0; c < board.getCols(); c++) {
+                if (board.play(c) == -1) continue;
+                int score = w.minimax(1, false, 3 - me);
+                board.undo();
+                if (score > bestScore) { bestScore = score; bestCol = c; }
+            }
+        } else {
+            bestCol = searchRoot(board, maxDepth, -1);
+        }
+        collectNodes();
+        return bestCol != -1 ? bestCol : firstFreeColumn(board);
+    }
+
+    /**
+     * Time-bounded search: iterative deepening alpha-beta (whatever the search mode), each
+     * iteration ordering the previous best move first. Depth is only limited by the number of
+     * empty cells; when the budget runs out the best move of the last completed iteration is
+     * returned. Depth 1 always completes.
+     */
+    public int chooseColumn(Game game, Duration budget) {
+        return chooseColumn(game, budget, new SearchToken());
+    }
+
+    /**
+     * chooseColumn(game, budget) that also stops once token is cancelled, even if that
+     * happens before the search starts; the move returned then should be discarded.
+     */
+    public int chooseColumn(Game game, Duration budget, SearchToken token) {
+        long t0 = System.nanoTime();
+        int col = timedMove(game, budget, token);
+        metrics.recordMove(moveSource, System.nanoTime() - t0, nodes);
+        return col;
+    }
+
+    private int timedMove(Game game, Duration budget, SearchToken token) {
+        BitBoard board = startSearch(game, token);
+        depthReached = 0;
+        int bestCol = immediateWin(board);
+        if (bestCol != -1) { moveSource = SearchMetrics.MoveSource.IMMEDIATE; return bestCol; }
+        if ((bestCol = bookMove(board)) != -1) return bestCol;
+        long budgetNanos = budget.toNanos();
+        // the solver gets half the budget, the search keeps what it leaves
+        long solveStart = System.nanoTime();
+        if ((bestCol = solvedMove(board, solveStart + budgetNanos / 2)) != -1) return bestCol;
+        budgetNanos -= System.nanoTime() - solveStart;
+        int firstDepth = 1;
+        PonderLine hit = takePonderLine(board.getHash());
+        if (hit != null) {
+            moveSource = SearchMetrics.MoveSource.PONDER;
+            // time already spent on this position while the opponent was thinking counts against the budget
+            bestCol = hit.col;
+            depthReached = hit.depth;
+            if (hit.done || hit.nanos >= budgetNanos) { collectNodes(); return bestCol; }
+            budgetNanos -= hit.nanos;
+            firstDepth = hit.depth + 1;
+        }
+        deadline = System.nanoTime() + budgetNanos;
+        int empty = board.getRows() * board.getCols() - board.getMoveCount();
+        for (int depth = firstDepth; depth <= empty; depth++) {
+            timed = depth > 1;
+            int col = searchRoot(board, depth, bestCol);
+            if (aborted) break;
+            bestCol = col;
+            depthReached = depth;
+            if (Math.abs(rootScore) > WIN_SCORE - MAX_PLY) break; // forced result, deeper won't change it
+            if (System.nanoTime() >= deadline || token.isCancelled()) break;
+        }
+        timed = false;
+        aborted = false;
+        collectNodes();
+        return bestCol != -1 ? bestCol : firstFreeColumn(board);
+    }
+
+    /**
+     * Pondering: searches on the opponent's time. game must have the opponent to move; every
+     * reply is searched (iterative deepening, the replies worst for us first) until cancel()
+     * is called or the calling thread is interrupted. The running reply search stops within
+     * a few thousand nodes, not at the end of its depth. The next chooseColumn(game, budget) on
+     * one of these positions starts from the pondered result and only spends what is left of
+     * its budget, returning at once if the pondering already covered it. The transposition
+     * table stays warm either way. Not to be run concurrently with another search on this AI.
+     */
+    public void ponder(Game game) {
+        ponder(game, new SearchToken());
+    }
+
+    /** ponder(game) that also stops once token is cancelled, even before it starts. */
+    public void ponder(Game game, SearchToken token) {
+        BitBoard board = startSearch(game, token);
+        int cols = board.getCols();
+        PonderLine[] lines = new PonderLine[cols];
+        ponderLines = lines;
+        if (game.isGameOver() || board.getPlayerToMove() == me) return;
+        List<PonderLine> open = new ArrayList<>();
+        for (int c = 0; c < cols; c++) {
+            if (board.play(c) == -1) continue;
+            boolean over = board.hasWon(3 - me) || board.getMoveCount() == board.getRows() * cols;
+            long hash = board.getHash();
+            board.undo();
+            if (over) continue;
+            PonderLine l = new PonderLine(c, hash);
+            lines[c] = l;
+            open.add(l);
+        }
+        timed = false;
+        for (int depth = 1; !open.isEmpty(); depth++) {
+            for (PonderLine l : open) {
+                if (aborted || token.isCancelled() || Thread.currentThread().isInterrupted()) { collectNodes(); return; }
+                long t0 = System.nanoTime();
+                for (Worker w : workers) w.board.play(l.reply);
+                int win = immediateWin(workers[0].board);
+                if (win != -1) {
+                    l.col = win;
+                    l.depth = depth;
+                    l.done = true;
+                } else {
+                    int col = searchRoot(workers[0].board, depth, l.col);
+                    if (col != -1) {
+                        l.col = col;
+                        l.depth = depth;
+                        l.score = rootScore;
+                        l.done = Math.abs(rootScore) > WIN_SCORE - MAX_PLY
+                                || depth >= board.getRows() * cols - board.getMoveCount() - 1;
+                    }
+                }
+                for (Worker w : workers) w.board.undo();
+                l.nanos += System.nanoTime() - t0;
+            }
+            open.removeIf(l -> l.done);
+            open.sort((a, b) -> Integer.compare(a.score, b.score)); // the opponent's best replies first
+        }
+        collectNodes();
+    }
+
+    // pondered result for the position with this hash, consumed by the lookup
+    private PonderLine takePonderLine(long hash) {
+        PonderLine[] lines = ponderLines;
+        ponderLines = new PonderLine[0];
+        for (PonderLine l : lines)
+            if (l != null && l.hash == hash && l.col != -1) return l;
+        return null;
+    }
+
+    /** One opponent reply being pondered and our best answer so far. */
+    private static final class PonderLine {
+        final int reply;
+        final long hash;    // position after the reply
+        int col = -1;       // best answer of the last completed depth
+        int depth;
+        int score;
+        long nanos;         // time spent on this reply
+        boolean done;       // forced result or full depth: no need to search it again
+
+        PonderLine(int reply, long hash) {
+            this.reply = reply;
+            this.hash = hash;
         }
-        return bestCol;
     }
 
     // Return score for every column (Integer.MIN_VALUE for invalid/full columns)
     public int[] columnScores(Game game) {
         int cols = game.getCols();
-        int[][] board = game.getBoardCopy();
+        startSearch(game, new SearchToken());
+        for (Worker w : workers) w.depthLimit = maxDepth;
         int[] scores = new int[cols];
-        for (int c = 0; c < cols; c++) {
-            int[][] copy = copyBoard(board);
-            int r = Game.dropOnBoard(copy, c, me);
-            if (r == -1) {
-                scores[c] = Integer.MIN_VALUE;
-                continue;
-            }
-            if (Game.checkWinOnBoard(copy, r, c, game.getWinLength())) {
-                scores[c] = 100000; // very high for immediate win
-                continue;
-            }
-            scores[c] = minimax(copy, game.getWinLength(), 1, false, 3 - me);
+        if (pool != null && searchMode == SearchMode.ALPHA_BETA) {
+            // columns are independent full-window searches: hand them out to the workers
+            AtomicInteger next = new AtomicInteger();
+            runOnWorkers(w -> {
+                for (int c = next.getAndIncrement(); c < cols; c = next.getAndIncrement())
+                    scores[c] = w.columnScore(c);
+            });
+        } else {
+            for (int c = 0; c < cols; c++) scores[c] = workers[0].columnScore(c);
         }
+        collectNodes();
         return scores;
     }
 
-    private int minimax(int[][] board, int winLength, int depth, boolean maximizing, int currentPlayer) {
-        if (depth > maxDepth) return evaluate(board, winLength, me);
-        List<Integer> moves = availableMoves(board);
-        if (moves.isEmpty()) return 0;
-        int best;
-        if (maximizing) {
-            best = Integer.MIN_VALUE;
-            for (int c : moves) {
-                int[][] copy = copyBoard(board);
-                int r = Game.dropOnBoard(copy, c, currentPlayer);
-                if (r == -1) continue;
-                if (Game.checkWinOnBoard(copy, r, c, winLength)) return 1000 / depth; // quicker win better
-                int val = minimax(copy, winLength, depth + 1, false, 3 - currentPlayer);
-                best = Math.max(best, val);
+    /**
+     * One alpha-beta pass from the root to the given depth; pvMove (or the TT move) is tried
+     * first. Returns the best column, or -1 if the pass was aborted by the deadline.
+     */
+    private int searchRoot(BitBoard board, int depth, int pvMove) {
+        for (Worker w : workers) w.depthLimit = depth;
+        Worker main = workers[0];
+        main.plyNodes[0]++;
+        int n = main.orderMoves(0, me, pvMove != -1 ? pvMove : ttMove(board), board.playableColumns(), true);
+        int[] rootMoves = main.moveBuf[0];
+        int bestCol = -1;
+        int bestScore = Integer.MIN_VALUE;
+        if (pool == null || n < 2) {
+            // center-first at the root too; ties still resolve to the lowest column like MINIMAX:
+            // a column left of the current best is searched with alpha lowered by one so an equal
+            // score comes back exact instead of as a fail-low bound.
+            for (int i = 0; i < n; i++) {
+                int c = rootMoves[i];
+                int alpha = bestCol == -1 ? Integer.MIN_VALUE : (c < bestCol ? bestScore - 1 : bestScore);
+                int score = main.searchChild(c, alpha);
+                if (aborted) return -1;
+                if (score > bestScore || (score == bestScore && c < bestCol)) { bestScore = score; bestCol = c; }
             }
         } else {
-            best = Integer.MAX_VALUE;
-            for (int c : moves) {
-                int[][] copy = copyBoard(board);
-                int r = Game.dropOnBoard(copy, c, currentPlayer);
-                if (r == -1) continue;
-                if (Game.checkWinOnBoard(copy, r, c, winLength)) return -1000 / depth; // opponent win
-                int val = minimax(copy, winLength, depth + 1, true, 3 - currentPlayer);
-                best = Math.min(best, val);
+            // first move alone to get a bound, then the siblings in parallel against that bound
+            int first = rootMoves[0];
+            int firstScore = main.searchChild(first, Integer.MIN_VALUE);
+            if (aborted) return -1;
+            int[] moves = java.util.Arrays.copyOfRange(rootMoves, 1, n);
+            int[] scores = new int[moves.length];
+            AtomicInteger next = new AtomicInteger();
+            runOnWorkers(w -> {
+                for (int i = next.getAndIncrement(); i < moves.length; i = next.getAndIncrement())
+                    scores[i] = w.searchChild(moves[i], moves[i] < first ? firstScore - 1 : firstScore);
+            });
+            if (aborted) return -1;
+            bestCol = first;
+            bestScore = firstScore;
+            for (int i = 0; i < moves.length; i++) {
+                int c = moves[i];
+                if (scores[i] > bestScore || (scores[i] == bestScore && c < bestCol)) { bestScore = scores[i]; bestCol = c; }
             }
         }
-        return best;
+        if (tt != null && bestCol != -1)
+            tt.store(board.getHash(), toTT(bestScore, 0), depth + 1, TranspositionTable.EXACT, bestCol);
+        rootScore = bestScore;
+        return bestCol;
+    }
+
+    private interface WorkerTask { void run(Worker w); }
+
+    // runs task once per worker on the pool and waits for all of them
+    private void runOnWorkers(WorkerTask task) {
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for (Worker w : workers) tasks.add(() -> { task.run(w); return null; });
+        try {
+            for (Future<Void> f : pool.invokeAll(tasks)) f.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            aborted = true;
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("search thread failed", ex.getCause());
+        }
+    }
+
+    // immediate win, lowest column first
+    private int immediateWin(BitBoard board) {
+        for (int c = 0; c < board.getCols(); c++) {
+            if (board.play(c) == -1) continue;
+            boolean win = board.hasWon(me);
+            board.undo();
+            if (win) return c;
+        }
+        return -1;
+    }
+
+    private int bookMove(BitBoard board) {
+        if (book == null) return -1;
+        int c = book.choose(board);
+        lastMoveFromBook = c != -1;
+        if (lastMoveFromBook) { depthReached = 0; moveSource = SearchMetrics.MoveSource.BOOK; }
+        return c;
     }
 
-    private int evaluate(int[][] board, int winLength, int me) {
-        int score = 0;
-        int rows = board.length;
-        int cols = board[0].length;
-        for (int r = 0; r < rows; r++) for (int c = 0; c < cols; c++) {
-            int p = board[r][c];
-            if (p == 0) continue;
-            if (Game.checkWinOnBoard(board, r, c, winLength)) {
-                if (p == me) return 1000;
-                else return -1000;
+    /**
+     * Proven win or draw for the root, or -1 (unproven, proven loss, or out of time before
+     * deadlineNanos). A loss is left to the search, which plays the longest resistance.
+     * Children already proven are read from ProvenResults; with few enough empty cells the
+     * others are solved, and every new result is recorded.
+     */
+    private int solvedMove(BitBoard board, long deadlineNanos) {
+        lastMoveSolved = false;
+        int cols = board.getCols();
+        int empty = board.getRows() * cols - board.getMoveCount();
+        if (aborted || solverThreshold == 0 || empty > solverThreshold + 1) return -1;
+
+        // proven winner (0 / 1 / 2) of each child, -1 if unknown
+        int[] winners = new int[cols];
+        java.util.Arrays.fill(winners, -1);
+        if (proven != null) {
+            PositionKey[] keys = new PositionKey[cols];
+            for (int c = 0; c < cols; c++) {
+                if (board.play(c) == -1) continue;
+                keys[c] = board.getCanonicalKey();
+                board.undo();
             }
-            // small heuristic: favor center columns
-            if (p == me) score += (cols/2 - Math.abs(c - cols/2));
-            else score -= (cols/2 - Math.abs(c - cols/2));
+            winners = proven.lookupAll(keys);
+        }
+        if (empty > solverThreshold) return pick(winners, -1); // known results only
+
+        Solver s = solver;
+        if (s == null) solver = s = new Solver(solverMegabytes);
+        long solverNodes = 0;
+        for (int i = 0; i < cols; i++) {
+            int c = cols / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2);
+            if (winners[c] != -1 || board.play(c) == -1) continue;
+            int v = board.isFull() ? 0 : s.solve(board, deadlineNanos, token); // value for the opponent
+            solverNodes += s.getNodeCount();
+            if (v != Solver.UNKNOWN) {
+                winners[c] = v == 0 ? 0 : v > 0 ? 3 - me : me;
+                if (proven != null) proven.record(board, winners[c]);
+            }
+            board.undo();
+            if (v == Solver.UNKNOWN || aborted) { nodes = solverNodes; return pick(winners, -1); }
+            if (winners[c] == me) break; // a proven win is enough
+        }
+        nodes = solverNodes;
+        int col = pick(winners, empty);
+        // root result: best child, every child being known here unless a win was found first
+        int rootWinner = winners[col != -1 ? col : bestKnown(winners)];
+        if (proven != null && rootWinner != -1) proven.record(board, rootWinner);
+        return col;
+    }
+
+    // proven win, else proven draw (center first); -1 otherwise. depth = depth to report
+    private int pick(int[] winners, int depth) {
+        int cols = winners.length;
+        for (int wanted : new int[] { me, 0 }) {
+            if (wanted == 0 && depth == -1) break; // unsolved siblings may still win
+            for (int i = 0; i < cols; i++) {
+                int c = cols / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2);
+                if (winners[c] != wanted) continue;
+                lastMoveSolved = true;
+                moveSource = SearchMetrics.MoveSource.SOLVER;
+                depthReached = Math.max(depth, 0);
+                return c;
+            }
+        }
+        return -1;
+    }
+
+    // some child with a known winner (all lost when called), for the root record
+    private static int bestKnown(int[] winners) {
+        for (int c = 0; c < winners.length; c++) if (winners[c] != -1) return c;
+        return 0;
+    }
+
+    // fallback: first non-full column
+    private static int firstFreeColumn(BitBoard board) {
+        for (int c = 0; c < board.getCols(); c++) if (board.canPlay(c)) return c;
+        return -1;
+    }
+
+    // loads the game position into every worker's board; returns the main worker's board (the root).
+    // A token cancelled before the search starts aborts it at once.
+    private BitBoard startSearch(Game game, SearchToken token) {
+        nodes = 0;
+        lastMoveFromBook = false;
+        moveSource = SearchMetrics.MoveSource.SEARCH;
+        this.token = token;
+        aborted = token.isCancelled();
+        for (Worker w : workers) w.reset(game.bitBoard());
+        if (tt != null) tt.newSearch();
+        return workers[0].board;
+    }
+
+    // totals the workers' node counts and hands their tree statistics to the metrics
+    private void collectNodes() {
+        long total = 0;
+        for (Worker w : workers) {
+            total += w.nodes;
+            w.publishStats();
         }
-        return score;
+        nodes = total;
+    }
+
+    private int ttMove(BitBoard board) {
+        long e = tt != null ? tt.probe(board.getHash()) : 0L;
+        return e != 0 ? TranspositionTable.move(e) : -1;
+    }
+
+    // win scores are stored relative to the node so they stay valid at any ply
+    private static int toTT(int v, int ply) {
+        if (v > WIN_SCORE - MAX_PLY && v <= WIN_SCORE) return v + ply;
+        if (v < -(WIN_SCORE - MAX_PLY) && v >= -WIN_SCORE) return v - ply;
+        return v;
+    }
+
+    private static int fromTT(int v, int ply) {
+        if (v > WIN_SCORE - MAX_PLY && v <= WIN_SCORE + MAX_PLY) return v - ply;
+        if (v < -(WIN_SCORE - MAX_PLY) && v >= -WIN_SCORE - MAX_PLY) return v + ply;
+        return v;
     }
 
-    private List<Integer> availableMoves(int[][] board) {
-        List<Integer> moves = new ArrayList<>();
-        int cols = board[0].length;
-        for (int c = 0; c < cols; c++) if (board[0][c] == 0) moves.add(c);
-        return moves;
+    /**
+     * Per-thread search state: a private board played and retracted in place (make/unmake),
+     * per-ply move buffers, ordering heuristics and node counter. Nothing is allocated per node.
+     */
+    private final class Worker {
+        private BitBoard board;
+        private int[][] moveBuf;     // per-ply ordered move lists
+        private int[][] orderBuf;    // per-ply ordering keys
+        private int[][] killers;     // two killer columns per ply
+        private int[][] history;     // [player][column] cutoff counters
+        private long nodes;
+        private int depthLimit;
+        // tree statistics since the last publishStats()
+        private long[] plyNodes;
+        private long expanded, cutoffs, firstMoveCutoffs, ttProbes, ttHits, ttCollisions;
+
+        void reset(BitBoard root) {
+            nodes = 0;
+            if (board == null || !board.sameGeometry(root)) board = root.copy();
+            else board.copyFrom(root);
+            int cols = root.getCols();
+            int plies = Math.max(maxDepth, root.getRows() * cols) + 2;
+            if (moveBuf == null || moveBuf.length != plies || moveBuf[0].length != cols) {
+                moveBuf = new int[plies][cols];
+                orderBuf = new int[plies][cols];
+                killers = new int[plies][2];
+                history = new int[3][cols];
+                plyNodes = new long[plies + 1];
+            }
+            for (int[] k : killers) { k[0] = -1; k[1] = -1; }
+            for (int[] h : history) java.util.Arrays.fill(h, 0);
+        }
+
+        // root child c searched with window (alpha, +inf)
+        int searchChild(int c, int alpha) {
+            board.play(c);
+            int score = alphaBeta(1, alpha, Integer.MAX_VALUE, false, 3 - me);
+            board.undo();
+            return score;
+        }
+
+        int columnScore(int c) {
+            if (board.play(c) == -1) return Integer.MIN_VALUE;
+            int score;
+            if (board.hasWon(me)) score = 100000; // very high for immediate win
+            else score = searchMode == SearchMode.MINIMAX
+                    ? minimax(1, false, 3 - me)
+                    : alphaBeta(1, Integer.MIN_VALUE, Integer.MAX_VALUE, false, 3 - me);
+            board.undo();
+            return score;
+        }
+
+        int minimax(int depth, boolean maximizing, int currentPlayer) {
+            nodes++;
+            plyNodes[depth]++;
+            if (depth > depthLimit) return evaluate(board, me);
+            int cols = board.getCols();
+            if (board.isFull()) return 0;
+            int best = maximizing ? Integer.MIN_VALUE : Integer.MAX_VALUE;
+            for (int c = 0; c < cols; c++) {
+                if (board.play(c) == -1) continue;
+                if (board.hasWon(currentPlayer)) {
+                    board.undo();
+                    return maximizing ? WIN_SCORE - depth : -(WIN_SCORE - depth); // quicker win better
+                }
+                int val = minimax(depth + 1, !maximizing, 3 - currentPlayer);
+                board.undo();
+                best = maximizing ? Math.max(best, val) : Math.min(best, val);
+            }
+            return best;
+        }
+
+        /**
+         * Fail-hard alpha-beta over the same scores as {@link #minimax}, backed by the transposition
+         * table when enabled. Threat masks resolve forced nodes without branching: a winning cell
+         * ends the node, two opponent wins lose it, a single one leaves the block as the only
+         * move, and columns under an opponent's winning cell are dropped. The opponent's threats
+         * are only used above the last ply, where minimax would find the same win one ply down;
+         * at the last ply its replies are evaluated, so every move is searched there.
+         */
+        int alphaBeta(int depth, int alpha, int beta, boolean maximizing, int currentPlayer) {
+            nodes++;
+            plyNodes[depth]++;
+            // token polled here too, not just between iterations: pondering has no deadline
+            if ((nodes & 1023) == 0 && (token.isCancelled() || timed && System.nanoTime() >= deadline)) aborted = true;
+            if (aborted) return alpha;
+            if (depth > depthLimit) return evaluate(board, me);
+            // threat masks settle forced nodes before any move is tried
+            if (board.winningColumns(currentPlayer) != 0) return maximizing ? WIN_SCORE - depth : -(WIN_SCORE - depth);
+            int allowed = board.playableColumns();
+            if (allowed == 0) return 0;                       // full board
+            if (depth < depthLimit) {
+                // the opponent's reply is still inside the tree, so its win is the exact minimax score
+                int opponent = 3 - currentPlayer;
+                int threats = board.winningColumns(opponent);
+                int lost = maximizing ? -(WIN_SCORE - depth - 1) : WIN_SCORE - depth - 1; // opponent wins next ply
+                if (Integer.bitCount(threats) > 1) return lost;   // two open wins, one block
+                if (threats != 0) allowed = threats;
+                allowed &= ~board.belowThreatColumns(opponent);   // don't fill the cell under its win
+                if (allowed == 0) return lost;
+            }
+            int draft = depthLimit - depth + 1;
+            long hash = board.getHash();
+            int ttMove = -1;
+            long entry = tt != null ? tt.probe(hash) : 0L;
+            if (tt != null) {
+                ttProbes++;
+                if (entry != 0) ttHits++;
+                else if (tt.isTakenByOther(hash)) ttCollisions++;
+            }
+            if (entry != 0) {
+                ttMove = TranspositionTable.move(entry);
+                if (TranspositionTable.draft(entry) >= draft) {
+                    int v = fromTT(TranspositionTable.value(entry), depth);
+                    int bound = TranspositionTable.bound(entry);
+                    if (bound == TranspositionTable.EXACT) return Math.max(alpha, Math.min(beta, v));
+                    if (bound == TranspositionTable.LOWER && v >= beta) return beta;
+                    if (bound == TranspositionTable.UPPER && v <= alpha) return alpha;
+                }
+            }
+            int n = orderMoves(depth, currentPlayer, ttMove, allowed, draft >= THREAT_ORDER_DRAFT);
+            int[] moves = moveBuf[depth];
+            expanded++;
+            int alphaOrig = alpha, betaOrig = beta;
+            int bestMove = moves[0];
+            for (int i = 0; i < n; i++) {
+                int c = moves[i];
+                board.play(c);
+                int val = alphaBeta(depth + 1, alpha, beta, !maximizing, 3 - currentPlayer);
+                board.undo();
+                if (aborted) return alpha;
+                if (maximizing ? val > alpha : val < beta) {
+                    if (maximizing) alpha = val; else beta = val;
+                    bestMove = c;
+                    if (alpha >= beta) {
+                        cutoffs++;
+                        if (i == 0) firstMoveCutoffs++;
+                        storeKiller(depth, c);
+                        history[currentPlayer][c] += draft * draft;
+                        break;
+                    }
+                }
+            }
+            int result = maximizing ? alpha : beta;
+            if (tt != null) {
+                int bound = result <= alphaOrig ? TranspositionTable.UPPER
+                          : result >= betaOrig ? TranspositionTable.LOWER
+                          : TranspositionTable.EXACT;
+                tt.store(hash, toTT(result, depth), draft, bound, bestMove);
+            }
+            return result;
+        }
+
+        /**
+         * Fills moveBuf[ply] with the allowed columns (bit c): transposition-table move first, then
+         * killers, then by the number of winning cells the move leaves the player, then by history
+         * score, center-first among equals. Returns the number of moves.
+         */
+        int orderMoves(int ply, int player, int ttMove, int allowed, boolean byThreats) {
+            int cols = board.getCols();
+            int[] moves = moveBuf[ply];
+            int[] keys = orderBuf[ply];
+            int n = 0;
+            for (int i = 0; i < cols; i++) {
+                // center-first: 4, 3, 5, 2, 6, ... for 9 columns
+                int c = cols / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2);
+                if ((allowed & (1 << c)) == 0) continue;
+                int key;
+                if (c == ttMove) key = TT_MOVE_BONUS;
+                else if (c == killers[ply][0]) key = KILLER_BONUS;
+                else if (c == killers[ply][1]) key = KILLER_BONUS - 1;
+                else if (byThreats) {
+                    board.play(c);
+                    key = Math.min(board.threatCount(player), 63) * THREAT_BONUS + Math.min(history[player][c], THREAT_BONUS - 1);
+                    board.undo();
+                } else {
+                    key = Math.min(history[player][c], THREAT_BONUS - 1);
+                }
+                // insertion sort, stable so center-first order survives between equal keys
+                int j = n++;
+                while (j > 0 && keys[j - 1] < key) { moves[j] = moves[j - 1]; keys[j] = keys[j - 1]; j--; }
+                moves[j] = c;
+                keys[j] = key;
+            }
+            return n;
+        }
+
+        void publishStats() {
+            if (plyNodes == null) return;
+            metrics.recordTree(plyNodes, expanded, cutoffs, firstMoveCutoffs, ttProbes, ttHits, ttCollisions);
+            java.util.Arrays.fill(plyNodes, 0L);
+            expanded = cutoffs = firstMoveCutoffs = ttProbes = ttHits = ttCollisions = 0;
+        }
+
+        private void storeKiller(int ply, int c) {
+            if (killers[ply][0] == c) return;
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = c;
+        }
     }
 
-    private int[][] copyBoard(int[][] board) {
-        int rows = board.length;
-        int cols = board[0].length;
-        int[][] copy = new int[rows][cols];
-        for (int i = 0; i < rows; i++) System.arraycopy(board[i], 0, copy[i], 0, cols);
-        return copy;
+    // Open-window score kept up to date by BitBoard on every play/undo, so a leaf costs O(1).
+    // Leaves never hold a win: both searches return as soon as a move wins.
+    private static int evaluate(BitBoard board, int me) {
+        int score = board.getWindowScore();
+        // long win lengths (1, 4, 16 ... 4^(winLength - 2) per window) must not read as a win
+        score = Math.max(-EVAL_LIMIT, Math.min(EVAL_LIMIT, score));
+        return me == 1 ? score : -score;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,280 @@
+package model;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bibliothèque d'ouvertures construite à partir de la base.
+ *
+ * Pour une position donnée, on joue chaque colonne, on prend la clé canonique de la
+ * position obtenue (le miroir est donc couvert) et on lit ses statistiques
+ * (parties, victoires j1 / j2, nuls) dans un cache en mémoire. Le coup retenu est celui
+ * dont le taux de réussite pour le joueur au trait est le meilleur, parmi ceux qui ont
+ * au moins minSamples parties terminées. Aucune recherche n'est lancée : quelques
+ * microsecondes par coup.
+ *
+ * Le cache est préchargé par load() (positions les plus jouées d'abord) et borné en
+ * LRU. Si la base contient les positions intermédiaires (PartieDAO.setIndexAllPositions),
+ * les positions absentes du cache sont lues à la demande, en une requête par coup ;
+ * sinon le livre est construit une fois en rejouant les débuts de parties de partie.
+ * Le préchargement passe par l'index idx_situation_move (move_number, nb_parties).
+ *
+ * L'interface utilise shared() : un seul livre par base et par règles, chargé une fois
+ * en arrière-plan et partagé par toutes les parties ; il ne propose rien tant que le
+ * chargement n'est pas terminé.
+ */
+public class OpeningBook {
+    public static final int DEFAULT_MAX_PLY = 12;
+    public static final int DEFAULT_MIN_SAMPLES = 10;
+    public static final int DEFAULT_CAPACITY = 100_000;
+
+    // {nb_parties, victoires j1, victoires j2, nuls} ; ABSENT = absente de la base
+    private static final int[] ABSENT = new int[0];
+
+    private static final String SELECT_POPULAR =
+            "SELECT pos_key, nb_parties, nb_victoires_j1, nb_victoires_j2, nb_nuls FROM situation " +
+            "WHERE move_number <= ? AND nb_victoires_j1 + nb_victoires_j2 + nb_nuls >= ? AND length(pos_key) = ? " +
+            "ORDER BY nb_parties DESC LIMIT ?";
+    private static final String SELECT_OPENINGS =
+            "SELECT left(sequence, ?), winner, nb_coups FROM partie WHERE regle = ?";
+    private static final String SELECT_KEYS =
+            "SELECT pos_key, nb_parties, nb_victoires_j1, nb_victoires_j2, nb_nuls FROM situation " +
+            "WHERE pos_key = ANY(?)";
+
+    private final DBHelper db;
+    private final Rules rules;
+    private final int maxPly;
+    private final int minSamples;
+    private final int capacity;
+    private final Map<PositionKey, int[]> cache;
+    private volatile boolean onDemand;
+
+    private volatile boolean loaded;
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+
+    // livres partagés, par base (DBHelper.poolKey) et par règles
+    private static final Map<String, OpeningBook> SHARED = new ConcurrentHashMap<>();
+
+    public OpeningBook(DBHelper db) {
+        this(db, Rules.DEFAULT);
+    }
+
+    /** Livre des parties jouées avec ces règles (les autres sont ignorées). */
+    public OpeningBook(DBHelper db, Rules rules) {
+        this(db, rules, DEFAULT_MAX_PLY, DEFAULT_MIN_SAMPLES, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * maxPly : le livre n'est consulté que pour les maxPly premiers coups.
+     * minSamples : nombre minimal de parties terminées pour qu'un coup soit proposé.
+     * capacity : nombre maximal de positions gardées en mémoire (LRU).
+     */
+    public OpeningBook(DBHelper db, Rules rules, int maxPly, int minSamples, int capacity) {
+        this.db = db;
+        this.rules = rules;
+        this.maxPly = maxPly;
+        this.minSamples = Math.max(1, minSamples);
+        this.capacity = capacity;
+        this.cache = new LinkedHashMap<PositionKey, int[]>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PositionKey, int[]> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Livre commun à toutes les parties jouées sur cette base avec ces règles. Le premier
+     * appel lance load() sur un thread démon et rend tout de suite la main ; en cas
+     * d'échec, l'appel suivant retente le chargement.
+     */
+    public static OpeningBook shared(DBHelper db, Rules rules) {
+        String key = db.poolKey() + "|" + rules.code();
+        return SHARED.computeIfAbsent(key, k -> {
+            OpeningBook book = new OpeningBook(db, rules);
+            Thread t = new Thread(() -> {
+                try {
+                    book.load();
+                } catch (SQLException ex) {
+                    SHARED.remove(key, book);
+                    System.err.println("Bibliothèque d'ouvertures non disponible : " + ex.getMessage());
+                }
+            }, "opening-book-" + rules.code());
+            t.setDaemon(true);
+            t.start();
+            return book;
+        });
+    }
+
+    /** Précharge le livre ; retourne le nombre de positions en mémoire. */
+    public int load() throws SQLException {
+        loaded = false;
+        synchronized (cache) { cache.clear(); }
+        int n = 0;
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement(SELECT_POPULAR)) {
+            ps.setInt(1, maxPly);
+            ps.setInt(2, minSamples);
+            ps.setInt(3, PositionKey.byteLength(rules));
+            ps.setInt(4, capacity);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    PositionKey k = PositionKey.fromBytes(rs.getBytes(1));
+                    if (!k.getRules().equals(rules)) continue; // autre jeu, même longueur de clé
+                    put(k, stats(rs));
+                    n++;
+                }
+            }
+        }
+        // positions intermédiaires indexées : le reste se lit à la demande
+        onDemand = n > 0;
+        if (!onDemand) n = loadFromParties();
+        loaded = true;
+        return n;
+    }
+
+    // Base sans positions intermédiaires : rejoue les maxPly premiers coups de chaque partie
+    private int loadFromParties() throws SQLException {
+        int rows = rules.getRows(), cols = rules.getCols();
+        Map<PositionKey, int[]> stats = new HashMap<>();
+        BitBoard board = new BitBoard(rows, cols, rules.getWinLength());
+        try (Connection c = db.getConnection()) {
+            c.setAutoCommit(false); // nécessaire pour que le driver lise par paquets
+            try (PreparedStatement ps = c.prepareStatement(SELECT_OPENINGS)) {
+                ps.setInt(1, maxPly); // seuls les maxPly premiers coups servent
+                ps.setString(2, rules.code());
+                ps.setFetchSize(1000);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        String seq = rs.getString(1);
+                        int winner = rs.getInt(2);
+                        boolean draw = winner == 0 && rs.getInt(3) == rows * cols;
+                        if (winner == 0 && !draw) continue; // partie non terminée
+                        board.clear();
+                        for (int i = 0; i < seq.length() && i < maxPly; i++) {
+                            if (board.play(seq.charAt(i) - '1') == -1) break;
+                            int[] s = stats.computeIfAbsent(board.getCanonicalKey(), k -> new int[4]);
+                            s[0]++;
+                            s[winner == 0 ? 3 : winner]++;
+                        }
+                    }
+                }
+            }
+        }
+        List<Map.Entry<PositionKey, int[]>> kept = new ArrayList<>();
+        for (Map.Entry<PositionKey, int[]> e : stats.entrySet())
+            if (e.getValue()[0] >= minSamples) kept.add(e);
+        kept.sort((a, b) -> Integer.compare(b.getValue()[0], a.getValue()[0]));
+        if (kept.size() > capacity) kept = kept.subList(0, capacity);
+        // les moins jouées d'abord : ce sont elles qui sortiront en premier du LRU
+        for (int i = kept.size() - 1; i >= 0; i--) put(kept.get(i).getKey(), kept.get(i).getValue());
+        return kept.size();
+    }
+
+    /**
+     * Coup du livre (colonne 0-based) pour le joueur au trait, ou -1 si la position est
+     * hors livre ou qu'aucune suite n'a assez de parties.
+     * Les statistiques ne remplacent pas la tactique : si l'adversaire menace de gagner,
+     * seul le blocage reste possible, et une colonne qui lui ouvre la case gagnante
+     * juste au-dessus n'est jamais proposée (comme dans la recherche).
+     */
+    public int choose(BitBoard board) {
+        if (!loaded || board.getMoveCount() >= maxPly) return -1;
+        if (board.getRows() != rules.getRows() || board.getCols() != rules.getCols()
+                || board.getWinLength() != rules.getWinLength()) return -1;
+        int opponent = 3 - board.getPlayerToMove();
+        int threats = board.winningColumns(opponent);
+        if (Integer.bitCount(threats) > 1) return -1; // perdu de toute façon : à la recherche
+        int allowed = (threats != 0 ? threats : board.playableColumns()) & ~board.belowThreatColumns(opponent);
+        if (allowed == 0) return -1;
+        probes.incrementAndGet();
+        int cols = board.getCols();
+        PositionKey[] children = new PositionKey[cols];
+        for (int c = 0; c < cols; c++) {
+            if ((allowed & (1 << c)) == 0 || board.play(c) == -1) continue;
+            children[c] = board.getCanonicalKey();
+            board.undo();
+        }
+        if (onDemand) fetchMissing(children);
+
+        int player = board.getPlayerToMove();
+        int best = -1;
+        double bestScore = -1;
+        for (int c = 0; c < cols; c++) {
+            if (children[c] == null) continue;
+            int[] s = get(children[c]);
+            if (s == null || s == ABSENT) continue;
+            int finished = s[1] + s[2] + s[3];
+            if (finished < minSamples) continue;
+            double score = (s[player] + 0.5 * s[3]) / finished;
+            if (score > bestScore) { bestScore = score; best = c; }
+        }
+        if (best != -1) hits.incrementAndGet();
+        return best;
+    }
+
+    // lit en une requête les positions filles inconnues du cache
+    private void fetchMissing(PositionKey[] keys) {
+        List<byte[]> missing = new ArrayList<>();
+        synchronized (cache) {
+            for (PositionKey k : keys) if (k != null && !cache.containsKey(k)) missing.add(k.toBytes());
+        }
+        if (missing.isEmpty()) return;
+        Map<PositionKey, int[]> found = new HashMap<>();
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement(SELECT_KEYS)) {
+            Array arr = c.createArrayOf("bytea", missing.toArray(new byte[0][]));
+            ps.setArray(1, arr);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) found.put(PositionKey.fromBytes(rs.getBytes(1)), stats(rs));
+            }
+        } catch (SQLException ex) {
+            // base indisponible : on continue avec le cache seul
+            onDemand = false;
+            ex.printStackTrace();
+            return;
+        }
+        for (byte[] b : missing) {
+            PositionKey k = PositionKey.fromBytes(b);
+            int[] s = found.get(k);
+            put(k, s != null ? s : ABSENT);
+        }
+    }
+
+    private static int[] stats(ResultSet rs) throws SQLException {
+        return new int[] { rs.getInt(2), rs.getInt(3), rs.getInt(4), rs.getInt(5) };
+    }
+
+    private int[] get(PositionKey k) {
+        synchronized (cache) { return cache.get(k); }
+    }
+
+    private void put(PositionKey k, int[] s) {
+        synchronized (cache) { cache.put(k, s); }
+    }
+
+    /** True une fois load() terminé. */
+    public boolean isLoaded() { return loaded; }
+
+    public int size() {
+        synchronized (cache) { return cache.size(); }
+    }
+
+    /** Nombre de consultations (positions dans la fenêtre du livre). */
+    public long getProbeCount() { return probes.get(); }
+
+    /** Nombre de consultations ayant fourni un coup. */
+    public long getHitCount() { return hits.get(); }
+}
@@ -1,24 +1,35 @@
 package model;
 
-import java.math.BigInteger;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 import java.io.File;
 
 /**
  * DAO pour sauvegarder les parties et les situations.
  *
  * PRINCIPE D'INDEXATION (cours) :
- *  - Chaque état de plateau est encodé en base 3
- *    puis converti en hexadécimal → la valeur hex EST l'index.
- *  - On stocke toujours la forme CANONIQUE = min(hex, sym_hex) pour
- *    dédupliquer automatiquement les situations symétriques.
+ *  - Chaque état de plateau est encodé en une clé binaire de taille fixe
+ *    (PositionKey : 12 octets pour 9×9, colonne par colonne) → la clé EST l'index.
+ *    Pour les autres règles (Rules), la clé commence par un en-tête qui les
+ *    identifie : deux jeux différents ne partagent jamais une situation.
+ *  - On stocke toujours la forme CANONIQUE = min(clé, clé du miroir) pour
+ *    dédupliquer automatiquement les situations symétriques. Les deux clés
+ *    sont tenues à jour coup par coup par le BitBoard, sans BigInteger.
  *  - La recherche d'une situation existante est un simple lookup
- *    sur l'index UNIQUE base3_hex → O(log n), pas de scan complet.
+ *    sur l'index UNIQUE pos_key → O(log n), pas de scan complet,
+ *    fait par un upsert (INSERT ... ON CONFLICT) en un seul aller-retour.
  *  - Plusieurs parties peuvent partager la même situation (mutualisation).
+ *  - Option setIndexAllPositions : toutes les positions intermédiaires sont
+ *    aussi enregistrées, avec victoires / nuls des parties qui y passent,
+ *    et chaque partie est reliée à ses positions (partie_position).
  */
 public class PartieDAO {
     private final DBHelper db;
@@ -33,186 +44,252 @@ public class PartieDAO {
      * Format : une partie par ligne → séquence [MODE]
      *   ex: 4534621 HUMAN_VS_HUMAN
      * Les lignes vides et commençant par # sont ignorées.
+     * Un fichier dont le nom est une séquence (ex: 4534621.txt) contient une seule partie.
      * Retourne le nombre de parties importées avec succès.
      */
     public int importFromFile(File file) throws Exception {
-        // Le nom du fichier (sans extension) EST la séquence de coups
-        String filename = file.getName();
-        String sequence = filename.replaceAll("(?i)\\.txt$", "").replaceAll("[^1-9]", "");
-        if (sequence.isEmpty()) return 0;
-
-        Game game = new Game();
-        for (char ch : sequence.toCharArray()) {
-            int col = Character.getNumericValue(ch) - 1;
-            if (game.drop(col) == -1) break;
-            if (game.isGameOver()) break;
-        }
-        if (game.getMoveHistory().isEmpty()) return 0;
-        savePartie(game, GameMode.HUMAN_VS_HUMAN);
-        return 1;
+        return importFromFiles(new File[]{ file });
     }
 
     /**
-     * Importe plusieurs fichiers d'un coup.
+     * Importe plusieurs fichiers (ou dossiers) d'un coup, par BulkImporter (COPY).
+     * Pas de reprise : réimporter un fichier ajoute ses parties une nouvelle fois.
      */
     public int importFromFiles(File[] files) throws Exception {
-        int total = 0;
-        for (File f : files) total += importFromFile(f);
-        return total;
+        BulkImporter importer = new BulkImporter(db);
+        importer.setResume(false);
+        importer.setVerbose(false);
+        importer.setIndexAllPositions(indexAllPositions);
+        return (int) importer.importAll(files);
     }
 
+    // Upsert en un seul aller-retour : insère la situation ou ajoute ses compteurs.
+    // Le RETURNING id est ajouté par le driver (getGeneratedKeys) pour que la même requête
+    // serve aussi en batch.
+    private static final String UPSERT_SITUATION =
+            "INSERT INTO situation(pos_key, sym_pos_key, nb_parties, move_number, resultat, " +
+            "                      nb_victoires_j1, nb_victoires_j2, nb_nuls) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
+            "ON CONFLICT (pos_key) DO UPDATE SET " +
+            "  nb_parties      = situation.nb_parties      + EXCLUDED.nb_parties," +
+            "  nb_victoires_j1 = situation.nb_victoires_j1 + EXCLUDED.nb_victoires_j1," +
+            "  nb_victoires_j2 = situation.nb_victoires_j2 + EXCLUDED.nb_victoires_j2," +
+            "  nb_nuls         = situation.nb_nuls         + EXCLUDED.nb_nuls";
+    private static final String INSERT_PARTIE =
+            "INSERT INTO partie(situation_id, sequence, nb_coups, winner, mode, regle) VALUES (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_POSITION =
+            "INSERT INTO partie_position(situation_id, partie_id) VALUES (?, ?) ON CONFLICT DO NOTHING";
+
+    // false : seule la situation finale de chaque partie est enregistrée
+    private volatile boolean indexAllPositions;
+
     /**
-     * Sauvegarde une partie terminée avec sa situation finale.
+     * Si activé, chaque position intermédiaire d'une partie (après chaque coup) est aussi
+     * enregistrée dans situation, avec son nb_parties et les résultats des parties qui y
+     * sont passées : la base devient une bibliothèque d'ouvertures / de statistiques.
+     * Désactivé par défaut (une seule situation par partie).
      */
-    public void savePartie(Game game, GameMode mode) {
-        List<Integer> moves = game.getMoveHistory(); // colonnes 1-based
-        if (moves.isEmpty()) return;
+    public void setIndexAllPositions(boolean indexAllPositions) {
+        this.indexAllPositions = indexAllPositions;
+    }
 
-        int winner = game.isGameOver() ? game.getWinner() : 0;
+    public boolean isIndexAllPositions() { return indexAllPositions; }
 
-        // Construire la séquence compacte ex: "4534621"
-        StringBuilder seqBuilder = new StringBuilder();
-        for (int col : moves) seqBuilder.append(col);
-        String sequence = seqBuilder.toString();
-
-        // Reconstruire le plateau final pour l'encoder
-        int[][] finalBoard = replayBoard(moves, game.getRows(), game.getCols());
-        String base3hex = toHex(finalBoard);
-        String symHex   = toHex(mirror(finalBoard));
+    /**
+     * Sauvegarde une partie terminée avec sa situation finale
+     * (et ses positions intermédiaires si setIndexAllPositions(true)).
+     * Retourne false si elle n'a pas été enregistrée (erreur SQL ou partie vide).
+     */
+    public boolean savePartie(Game game, GameMode mode) {
+        return savePartie(Collections.singletonList(game), mode) == 1;
+    }
 
-        // Forme canonique = lexicographiquement la plus petite des deux
-        String canonical = canonical(base3hex, symHex);
-        String symCanonical = canonical.equals(base3hex) ? symHex : base3hex;
+    /**
+     * Sauvegarde un lot de parties dans une seule transaction, en deux batchs JDBC :
+     * un upsert par situation distincte (les doublons du lot sont regroupés et comptés),
+     * puis toutes les parties. Les situations sont écrites dans l'ordre des clés pour que
+     * deux écrivains concurrents verrouillent les lignes dans le même ordre.
+     * Retourne le nombre de parties validées (commit) : 0 si la transaction a échoué.
+     */
+    public int savePartie(List<Game> games, GameMode mode) {
+        // Regrouper les situations identiques du lot (triées par clé)
+        Map<PositionKey, Situation> situations = new TreeMap<>();
+        List<Encoded> encoded = new ArrayList<>(games.size());
+        for (Game g : games) {
+            Encoded e = encode(g, situations, indexAllPositions);
+            if (e != null) encoded.add(e);
+        }
+        if (encoded.isEmpty()) return 0;
 
+        long t0 = System.nanoTime();
         try (Connection c = db.getConnection()) {
             c.setAutoCommit(false);
             try {
-                // 1. Chercher ou créer la situation (lookup sur l'index unique)
-                int situationId = getOrCreateSituation(
-                        c, canonical, symCanonical, moves.size(), winner);
-
-                // 2. Insérer la partie liée à cette situation
-                try (PreparedStatement ps = c.prepareStatement(
-                        "INSERT INTO partie(situation_id, sequence, nb_coups, winner, mode) " +
-                        "VALUES (?, ?, ?, ?, ?)")) {
-                    ps.setInt(1, situationId);
-                    ps.setString(2, sequence);
-                    ps.setInt(3, moves.size());
-                    ps.setInt(4, winner);
-                    ps.setString(5, mode.name());
-                    ps.executeUpdate();
+                // 1. Upsert de toutes les situations distinctes
+                Map<PositionKey, Integer> ids = new HashMap<>();
+                try (PreparedStatement ps = c.prepareStatement(UPSERT_SITUATION, new String[]{"id"})) {
+                    for (Situation s : situations.values()) {
+                        bindSituation(ps, s);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        for (Situation s : situations.values()) {
+                            rs.next();
+                            ids.put(s.key, rs.getInt(1));
+                        }
+                    }
                 }
 
-                c.commit();
+                // 2. Insertion de toutes les parties, liées à leur situation finale
+                try (PreparedStatement ps = c.prepareStatement(INSERT_PARTIE, new String[]{"id"})) {
+                    for (Encoded e : encoded) {
+                        bindPartie(ps, e, ids.get(e.finalKey), mode);
+                        ps.addBatch();
+                    }
+                    ps.executeBatch();
+                    try (ResultSet rs = ps.getGeneratedKeys()) {
+                        for (Encoded e : encoded) {
+                            rs.next();
+                            e.partieId = rs.getInt(1);
+                        }
+                    }
+                }
+
+                // 3. Positions traversées par chaque partie (recherche par position dans DBViewer)
+                if (indexAllPositions) {
+                    try (PreparedStatement ps = c.prepareStatement(INSERT_POSITION)) {
+                        for (Encoded e : encoded) {
+                            for (PositionKey k : e.positions) {
+                                ps.setInt(1, ids.get(k));
+                                ps.setInt(2, e.partieId);
+                                ps.addBatch();
+                            }
+                        }
+                        ps.executeBatch();
+                    }
+                }
 
+                c.commit();
+                SearchMetrics.global().recordDbSave(encoded.size(), System.nanoTime() - t0);
+                GameEventLog events = GameEventLog.global();
+                if (events != null) for (Encoded e : encoded) events.gameSaved(e.gameId, e.partieId);
+                return encoded.size();
             } catch (SQLException ex) {
                 c.rollback();
                 throw ex;
             }
         } catch (SQLException ex) {
+            SearchMetrics.global().recordDbError();
             ex.printStackTrace();
+            return 0;
         }
     }
 
-    /**
-     * Lookup O(log n) sur l'index base3_hex.
-     * Si la situation existe déjà → incrémente nb_parties et retourne son id.
-     * Sinon → crée une nouvelle ligne.
-     */
-    private int getOrCreateSituation(Connection c, String canonical, String symHex,
-                                     int moveNumber, int resultat) throws SQLException {
-        // Chercher via l'index unique (pas de scan complet)
-        try (PreparedStatement ps = c.prepareStatement(
-                "SELECT id FROM situation WHERE base3_hex = ?")) {
-            ps.setString(1, canonical);
-            ResultSet rs = ps.executeQuery();
-            if (rs.next()) {
-                int id = rs.getInt(1);
-                // Incrémenter le compteur de mutualisation
-                try (PreparedStatement upd = c.prepareStatement(
-                        "UPDATE situation SET nb_parties = nb_parties + 1 WHERE id = ?")) {
-                    upd.setInt(1, id);
-                    upd.executeUpdate();
-                }
-                return id;
-            }
-        }
-
-        // Situation inconnue → insérer
-        try (PreparedStatement ps = c.prepareStatement(
-                "INSERT INTO situation(base3_hex, sym_base3_hex, move_number, resultat) " +
-                "VALUES (?, ?, ?, ?) RETURNING id")) {
-            ps.setString(1, canonical);
-            ps.setString(2, symHex);
-            ps.setInt(3, moveNumber);
-            if (resultat == 0 && moveNumber > 0) ps.setNull(4, java.sql.Types.INTEGER);
-            else ps.setInt(4, resultat);
-            ResultSet rs = ps.executeQuery();
-            rs.next();
-            return rs.getInt(1);
-        }
+    /** Partie prête à écrire : séquence, résultat et clé de sa situation finale. */
+    private static final class Encoded {
+        long gameId;        // Game.getId(), pour le journal d'événements
+        String sequence;
+        int nbCoups;
+        int winner;
+        String regle;       // Rules.code()
+        PositionKey finalKey;
+        List<PositionKey> positions = new ArrayList<>(); // toutes, si allPositions
+        int partieId;
     }
 
-    // ----------------------------------------------------------
-    // ENCODAGE BASE 3 → HEXADÉCIMAL
-    // ----------------------------------------------------------
+    /** Compteurs cumulés d'une situation sur le lot (aussi utilisés par BulkImporter). */
+    static final class Situation {
+        PositionKey key;
+        PositionKey symKey;
+        int moveNumber;
+        Integer resultat;   // NULL=en cours, 0=nul, 1=j1, 2=j2
+        int nbParties;
+        int victoiresJ1;
+        int victoiresJ2;
+        int nuls;
+    }
 
     /**
-     * Encode le plateau en un entier base 3 (72 chiffres pour 9×8),
-     * puis retourne sa représentation hexadécimale.
-     * Lecture : ligne par ligne, colonne par colonne.
+     * Rejoue la partie sur un BitBoard (les clés sont mises à jour coup par coup) et
+     * ajoute ses situations à situations : la finale, ou toutes si allPositions.
+     * null si la partie est vide.
      */
-    private String toHex(int[][] board) {
-        BigInteger value = BigInteger.ZERO;
-        BigInteger base  = BigInteger.valueOf(3);
-        int rows = board.length;
-        int cols = board[0].length;
-        for (int r = 0; r < rows; r++) {
-            for (int col = 0; col < cols; col++) {
-                value = value.multiply(base).add(BigInteger.valueOf(board[r][col]));
+    private static Encoded encode(Game game, Map<PositionKey, Situation> situations, boolean allPositions) {
+        List<Integer> moves = game.getMoveHistory(); // colonnes 1-based
+        if (moves.isEmpty()) return null;
+
+        Encoded e = new Encoded();
+        e.gameId = game.getId();
+        e.winner = game.isGameOver() ? game.getWinner() : 0;
+        e.nbCoups = moves.size();
+        e.regle = game.getRules().code();
+
+        // Construire la séquence compacte ex: "4534621"
+        StringBuilder seqBuilder = new StringBuilder();
+        for (int col : moves) seqBuilder.append(col);
+        e.sequence = seqBuilder.toString();
+
+        int rows = game.getRows(), cols = game.getCols();
+        boolean draw = e.winner == 0 && e.nbCoups == rows * cols;
+        BitBoard board = new BitBoard(rows, cols, game.getWinLength());
+        for (int i = 0; i < moves.size(); i++) {
+            board.play(moves.get(i) - 1); // alternance J1/J2 par parité
+            boolean last = i == moves.size() - 1;
+            if (last || allPositions) {
+                PositionKey canonical = addSituation(situations, board, last, e.winner, draw);
+                if (allPositions) e.positions.add(canonical);
+                if (last) e.finalKey = canonical;
             }
         }
-        return value.toString(16).toUpperCase();
+        return e;
     }
 
     /**
-     * Retourne le miroir horizontal du plateau (colonnes inversées).
-     * Si l'original et son symétrique ont le même hash hex,
-     * la situation est palindromique (axe de symétrie central).
+     * Compte la position courante de board pour une partie de résultat winner / draw ;
+     * last = position finale de la partie. Retourne sa clé canonique.
      */
-    private int[][] mirror(int[][] board) {
-        int rows = board.length;
-        int cols = board[0].length;
-        int[][] sym = new int[rows][cols];
-        for (int r = 0; r < rows; r++)
-            for (int c = 0; c < cols; c++)
-                sym[r][c] = board[r][cols - 1 - c];
-        return sym;
+    static PositionKey addSituation(Map<PositionKey, Situation> situations, BitBoard board,
+                                    boolean last, int winner, boolean draw) {
+        PositionKey key = board.getKey();
+        PositionKey symKey = board.getMirrorKey();
+        // Forme canonique = la plus petite des deux
+        PositionKey canonical = PositionKey.min(key, symKey);
+        Situation s = situations.get(canonical);
+        if (s == null) {
+            s = new Situation();
+            s.key = canonical;
+            s.symKey = canonical == key ? symKey : key;
+            s.moveNumber = board.getMoveCount();
+            if (last && winner != 0) s.resultat = winner;
+            else if (last && draw) s.resultat = 0;
+            situations.put(canonical, s);
+        }
+        s.nbParties++;
+        if (winner == 1) s.victoiresJ1++;
+        else if (winner == 2) s.victoiresJ2++;
+        else if (draw) s.nuls++;
+        return canonical;
     }
 
-    /**
-     * Forme canonique = la plus petite des deux représentations hex
-     * (lexicographique après padding à la même longueur).
-     * Garantit que position et symétrique pointent vers la même ligne.
-     */
-    private String canonical(String a, String b) {
-        // Padder à la même longueur avant comparaison lexicographique
-        int len = Math.max(a.length(), b.length());
-        String pa = String.format("%" + len + "s", a).replace(' ', '0');
-        String pb = String.format("%" + len + "s", b).replace(' ', '0');
-        return pa.compareTo(pb) <= 0 ? a : b;
+    private static void bindSituation(PreparedStatement ps, Situation s) throws SQLException {
+        ps.setBytes(1, s.key.toBytes());
+        ps.setBytes(2, s.symKey.toBytes());
+        ps.setInt(3, s.nbParties);
+        ps.setInt(4, s.moveNumber);
+        if (s.resultat == null) ps.setNull(5, java.sql.Types.INTEGER);
+        else ps.setInt(5, s.resultat);
+        ps.setInt(6, s.victoiresJ1);
+        ps.setInt(7, s.victoiresJ2);
+        ps.setInt(8, s.nuls);
     }
 
-    /**
-     * Rejoue la liste de coups sur un plateau vierge et retourne l'état final.
-     */
-    private int[][] replayBoard(List<Integer> moves, int rows, int cols) {
-        int[][] board = new int[rows][cols];
-        int player = 1;
-        for (int col1based : moves) {
-            Game.dropOnBoard(board, col1based - 1, player);
-            player = 3 - player;
-        }
-        return board;
+    private static void bindPartie(PreparedStatement ps, Encoded e, int situationId, GameMode mode) throws SQLException {
+        ps.setInt(1, situationId);
+        ps.setString(2, e.sequence);
+        ps.setInt(3, e.nbCoups);
+        ps.setInt(4, e.winner);
+        ps.setString(5, mode.name());
+        ps.setString(6, e.regle);
     }
 }
@@ -0,0 +1,135 @@
+package model;
+
+/**
+ * Fixed-width binary key of a board position, as stored in situation.pos_key.
+ *
+ * Each column is packed into rows + 1 bits: its player 1 discs as 1 bits from the bottom,
+ * topped by a single marker bit at the column height (an empty column is 1). Columns are
+ * concatenated with column 0 in the most significant chunk, so a 9x9 board is a 90-bit
+ * number, stored big-endian on 12 bytes. Byte order equals numeric order, and the
+ * canonical key of a position is the smaller of its key and its mirror's key.
+ *
+ * {@link BitBoard} maintains both keys incrementally; {@link #of(int[][], int)} rebuilds one
+ * from a plain array.
+ *
+ * Keys of any other rule set than {@link Rules#DEFAULT} start with a 4-byte header
+ * (0xFF, rows, cols, winLength) so that positions of different games never share a row of
+ * situation. A 9x9 key cannot start with 0xFF (its 6 leading bits are always 0), so the
+ * historical keys stay unchanged.
+ */
+public final class PositionKey implements Comparable<PositionKey> {
+    private final long hi;
+    private final long lo;
+    private final int bytes;
+    private final int tag;  // 0 for Rules.DEFAULT, else rows << 16 | cols << 8 | winLength
+
+    private static final int HEADER = 0xFF;
+    private static final int DEFAULT_TAG = 0;
+
+    PositionKey(long hi, long lo, int bits, int tag) {
+        this.hi = hi;
+        this.lo = lo;
+        this.bytes = (bits + 7) / 8;
+        this.tag = tag;
+    }
+
+    static int tag(int rows, int cols, int winLength) {
+        int tag = (rows << 16) | (cols << 8) | winLength;
+        return tag == Rules.DEFAULT.hashCode() ? DEFAULT_TAG : tag;
+    }
+
+    /** Key of an int[rows][cols] board (row 0 = top, 0 empty, 1 / 2 players), four in a row. */
+    public static PositionKey of(int[][] board) {
+        return of(board, 4);
+    }
+
+    /** Key of an int[rows][cols] board played with the given win length. */
+    public static PositionKey of(int[][] board, int winLength) {
+        int rows = board.length, cols = board[0].length, stride = rows + 1;
+        long hi = 0, lo = 0;
+        for (int c = 0; c < cols; c++) {
+            long code = 0;
+            int h = 0;
+            for (int r = rows - 1; r >= 0 && board[r][c] != 0; r--, h++)
+                if (board[r][c] == 1) code |= 1L << h;
+            code |= 1L << h;
+            hi = (hi << stride) | (lo >>> (64 - stride));
+            lo = (lo << stride) | code;
+        }
+        return new PositionKey(hi, lo, stride * cols, tag(rows, cols, winLength));
+    }
+
+    /** Smaller of a and b. */
+    public static PositionKey min(PositionKey a, PositionKey b) {
+        return a.compareTo(b) <= 0 ? a : b;
+    }
+
+    public long getHi() { return hi; }
+    public long getLo() { return lo; }
+
+    /** Rules the position was played under. */
+    public Rules getRules() {
+        return tag == DEFAULT_TAG ? Rules.DEFAULT : new Rules(tag >>> 16, (tag >>> 8) & 0xFF, tag & 0xFF);
+    }
+
+    /** Big-endian, fixed width for a given rule set (12 bytes for 9x9, header included otherwise). */
+    public byte[] toBytes() {
+        int h = tag == DEFAULT_TAG ? 0 : 4;
+        byte[] out = new byte[h + bytes];
+        if (h != 0) {
+            out[0] = (byte) HEADER;
+            out[1] = (byte) (tag >>> 16);
+            out[2] = (byte) (tag >>> 8);
+            out[3] = (byte) tag;
+        }
+        for (int i = 0; i < bytes; i++) {
+            int shift = 8 * (bytes - 1 - i);
+            out[h + i] = (byte) (shift >= 64 ? hi >>> (shift - 64) : lo >>> shift);
+        }
+        return out;
+    }
+
+    public static PositionKey fromBytes(byte[] in) {
+        int h = 0, tag = DEFAULT_TAG;
+        if (in.length > 4 && (in[0] & 0xFF) == HEADER) {
+            h = 4;
+            tag = tag(in[1] & 0xFF, in[2] & 0xFF, in[3] & 0xFF);
+        }
+        long hi = 0, lo = 0;
+        for (int i = h; i < in.length; i++) {
+            hi = (hi << 8) | (lo >>> 56);
+            lo = (lo << 8) | (in[i] & 0xFF);
+        }
+        return new PositionKey(hi, lo, (in.length - h) * 8, tag);
+    }
+
+    /** Length of toBytes() for this rule set. */
+    public static int byteLength(Rules rules) {
+        int bits = (rules.getRows() + 1) * rules.getCols();
+        return (bits + 7) / 8 + (rules.isDefault() ? 0 : 4);
+    }
+
+    @Override
+    public int compareTo(PositionKey o) {
+        if (tag != o.tag) return Integer.compare(tag, o.tag);
+        int c = Long.compareUnsigned(hi, o.hi);
+        return c != 0 ? c : Long.compareUnsigned(lo, o.lo);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof PositionKey)) return false;
+        PositionKey k = (PositionKey) o;
+        return k.hi == hi && k.lo == lo && k.tag == tag;
+    }
+
+    @Override
+    public int hashCode() { return Long.hashCode(hi * 31 + lo) ^ tag; }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(bytes * 2);
+        for (byte b : toBytes()) sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        return sb.toString().toUpperCase();
+    }
+}
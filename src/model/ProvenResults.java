@@ -0,0 +1,202 @@
+package model;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Résultats prouvés par le solveur de fin de partie, stockés dans la table situation_prouvee.
+ *
+ * resultat vaut le vainqueur avec un jeu parfait des deux côtés (1 = j1, 2 = j2, 0 = nul).
+ * La clé est la clé canonique (le miroir est couvert), comme pour situation ; la table est
+ * séparée pour que les positions résolues sans avoir été jouées ne faussent ni nb_parties
+ * ni le livre d'ouvertures. Un résultat déjà enregistré n'est jamais réécrit.
+ *
+ * Les lectures passent par un cache LRU (positions prouvées ET positions sans résultat,
+ * pour ne pas redemander la base), une requête par lot de clés. Les écritures sont
+ * asynchrones : un thread unique les enchaîne, la recherche n'attend jamais la base.
+ * L'interface partage une instance par base (shared) ; flushShared() en fin de programme
+ * termine les écritures en attente.
+ */
+public class ProvenResults {
+    public static final int DEFAULT_CAPACITY = 200_000;
+
+    // UNPROVEN : connue de la base (ou pas) mais sans résultat prouvé
+    private static final int UNPROVEN = -1;
+
+    private static final String SELECT_KEYS =
+            "SELECT pos_key, resultat FROM situation_prouvee WHERE pos_key = ANY(?)";
+    private static final String INSERT_RESULT =
+            "INSERT INTO situation_prouvee(pos_key, sym_pos_key, move_number, resultat) " +
+            "VALUES (?, ?, ?, ?) ON CONFLICT (pos_key) DO NOTHING";
+
+    // instances partagées, par base (DBHelper.poolKey)
+    private static final Map<String, ProvenResults> SHARED = new ConcurrentHashMap<>();
+
+    private final DBHelper db;
+    private final Map<PositionKey, Integer> cache;
+    private final ExecutorService writer;
+    private volatile boolean online = true;
+
+    private final AtomicLong probes = new AtomicLong();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+
+    public ProvenResults(DBHelper db) {
+        this(db, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Instance commune à toutes les parties jouées sur cette base : un seul cache et un seul
+     * thread d'écriture, quel que soit le nombre de parties.
+     */
+    public static ProvenResults shared(DBHelper db) {
+        return SHARED.computeIfAbsent(db.poolKey(), k -> new ProvenResults(db));
+    }
+
+    /** flush() de toutes les instances partagées, à appeler en fin de programme. */
+    public static void flushShared(long timeoutMillis) {
+        for (ProvenResults p : SHARED.values()) p.flush(timeoutMillis);
+        SHARED.clear();
+    }
+
+    /** capacity : nombre maximal de positions gardées en mémoire (LRU). */
+    public ProvenResults(DBHelper db, int capacity) {
+        this.db = db;
+        this.cache = new LinkedHashMap<PositionKey, Integer>(1024, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<PositionKey, Integer> eldest) {
+                return size() > capacity;
+            }
+        };
+        this.writer = Executors.newSingleThreadExecutor(r -> {
+            Thread t = new Thread(r, "proven-results");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Résultats prouvés des positions keys (clés canoniques) : tableau parallèle, vainqueur
+     * 0 / 1 / 2, ou -1 si la position n'est pas prouvée (ou si la clé est null).
+     */
+    public int[] lookupAll(PositionKey[] keys) {
+        probes.incrementAndGet();
+        fetchMissing(keys);
+        int[] res = new int[keys.length];
+        boolean hit = false;
+        synchronized (cache) {
+            for (int i = 0; i < keys.length; i++) {
+                Integer r = keys[i] == null ? null : cache.get(keys[i]);
+                res[i] = r == null ? UNPROVEN : r;
+                hit |= res[i] != UNPROVEN;
+            }
+        }
+        if (hit) hits.incrementAndGet();
+        return res;
+    }
+
+    /**
+     * Enregistre le résultat prouvé de la position courante de board (vainqueur 0 / 1 / 2).
+     * Retour immédiat : l'écriture se fait en tâche de fond.
+     */
+    public void record(BitBoard board, int winner) {
+        PositionKey key = board.getKey();
+        PositionKey symKey = board.getMirrorKey();
+        PositionKey canonical = PositionKey.min(key, symKey);
+        PositionKey other = canonical == key ? symKey : key;
+        int moveNumber = board.getMoveCount();
+        synchronized (cache) {
+            Integer old = cache.get(canonical);
+            if (old != null && old != UNPROVEN) return; // déjà prouvée
+            cache.put(canonical, winner);
+        }
+        if (!online || writer.isShutdown()) return;
+        writer.execute(() -> write(canonical, other, moveNumber, winner));
+    }
+
+    private void write(PositionKey key, PositionKey symKey, int moveNumber, int winner) {
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement(INSERT_RESULT)) {
+            ps.setBytes(1, key.toBytes());
+            ps.setBytes(2, symKey.toBytes());
+            ps.setInt(3, moveNumber);
+            ps.setInt(4, winner);
+            ps.executeUpdate();
+            written.incrementAndGet();
+        } catch (SQLException ex) {
+            // base indisponible : on garde les résultats en mémoire seulement
+            online = false;
+            ex.printStackTrace();
+        }
+    }
+
+    // lit en une requête les positions inconnues du cache
+    private void fetchMissing(PositionKey[] keys) {
+        if (!online) return;
+        List<byte[]> missing = new ArrayList<>();
+        synchronized (cache) {
+            for (PositionKey k : keys) if (k != null && !cache.containsKey(k)) missing.add(k.toBytes());
+        }
+        if (missing.isEmpty()) return;
+        Map<PositionKey, Integer> found = new HashMap<>();
+        try (Connection c = db.getConnection();
+             PreparedStatement ps = c.prepareStatement(SELECT_KEYS)) {
+            Array arr = c.createArrayOf("bytea", missing.toArray(new byte[0][]));
+            ps.setArray(1, arr);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int r = rs.getInt(2);
+                    if (!rs.wasNull()) found.put(PositionKey.fromBytes(rs.getBytes(1)), r);
+                }
+            }
+        } catch (SQLException ex) {
+            online = false;
+            ex.printStackTrace();
+            return;
+        }
+        synchronized (cache) {
+            for (byte[] b : missing) {
+                PositionKey k = PositionKey.fromBytes(b);
+                Integer r = found.get(k);
+                // un résultat arrivé entre-temps par record() est conservé
+                if (r != null || !cache.containsKey(k)) cache.put(k, r != null ? r : UNPROVEN);
+            }
+        }
+    }
+
+    /** Attend la fin des écritures en attente (au plus timeoutMillis) ; à appeler en fin de programme. */
+    public void flush(long timeoutMillis) {
+        writer.shutdown();
+        try {
+            writer.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public int size() {
+        synchronized (cache) { return cache.size(); }
+    }
+
+    /** Nombre de consultations. */
+    public long getProbeCount() { return probes.get(); }
+
+    /** Nombre de consultations ayant trouvé au moins une position prouvée. */
+    public long getHitCount() { return hits.get(); }
+
+    /** Nombre de résultats écrits dans la base. */
+    public long getWrittenCount() { return written.get(); }
+}
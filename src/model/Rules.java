@@ -0,0 +1,72 @@
+package model;
+
+/**
+ * Board geometry and win length of a game: cols x rows, winLength aligned discs to win.
+ *
+ * Limits come from the storage formats: a column is stored as one digit of partie.sequence
+ * (cols <= 9), a position must fit the 128-bit {@link BitBoard} ((rows + 1) * cols <= 128)
+ * and winLength <= 8.
+ * {@link #code()} ("7x6x4": cols x rows x winLength) is the form kept in partie.regle.
+ */
+public final class Rules {
+    /** The historical 9x9 board, four in a row. */
+    public static final Rules DEFAULT = new Rules(9, 9, 4);
+    /** Standard Connect 4: 7 columns, 6 rows. */
+    public static final Rules CLASSIC = new Rules(6, 7, 4);
+
+    // window counts are packed in nibbles (see WindowTable)
+    private static final int MAX_WIN_LENGTH = 8;
+
+    private final int rows;
+    private final int cols;
+    private final int winLength;
+
+    public Rules(int rows, int cols, int winLength) {
+        if (cols < 1 || cols > 9) throw new IllegalArgumentException("cols must be in 1..9: " + cols);
+        if (rows < 1 || (rows + 1) * cols > 128)
+            throw new IllegalArgumentException("board too large for a 128-bit bitboard: " + cols + "x" + rows);
+        int maxWin = Math.min(MAX_WIN_LENGTH, Math.max(rows, cols));
+        if (winLength < 2 || winLength > maxWin)
+            throw new IllegalArgumentException("winLength must be in 2.." + maxWin + ": " + winLength);
+        this.rows = rows;
+        this.cols = cols;
+        this.winLength = winLength;
+    }
+
+    /** Parses "COLSxROWS" (four in a row) or "COLSxROWSxWIN", e.g. "7x6" or "9x9x4". */
+    public static Rules parse(String code) {
+        String[] parts = code.trim().toLowerCase().split("[x×]");
+        if (parts.length < 2 || parts.length > 3) throw new IllegalArgumentException("bad rules: " + code);
+        try {
+            int cols = Integer.parseInt(parts[0]);
+            int rows = Integer.parseInt(parts[1]);
+            int win = parts.length == 3 ? Integer.parseInt(parts[2]) : 4;
+            return new Rules(rows, cols, win);
+        } catch (NumberFormatException ex) {
+            throw new IllegalArgumentException("bad rules: " + code, ex);
+        }
+    }
+
+    public int getRows() { return rows; }
+    public int getCols() { return cols; }
+    public int getWinLength() { return winLength; }
+    public int getCells() { return rows * cols; }
+
+    public boolean isDefault() { return equals(DEFAULT); }
+
+    /** cols x rows x winLength, e.g. "9x9x4". */
+    public String code() { return cols + "x" + rows + "x" + winLength; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rules)) return false;
+        Rules r = (Rules) o;
+        return rows == r.rows && cols == r.cols && winLength == r.winLength;
+    }
+
+    @Override
+    public int hashCode() { return (rows << 16) | (cols << 8) | winLength; }
+
+    @Override
+    public String toString() { return cols + "×" + rows + " (" + winLength + " in a row)"; }
+}
@@ -0,0 +1,182 @@
+package model;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Process-wide counters for the search and persistence layers, cheap enough to stay on.
+ *
+ * The search counts nodes, cutoffs and TT probes in per-worker fields and hands them over
+ * here once per search (MinimaxAI), so a node costs a few plain increments; moves and DB
+ * saves add one atomic update each. Read the figures through JMX ({@link #registerMBean()})
+ * or as one log line every period ({@link #startLogging(Duration)}).
+ */
+public final class SearchMetrics implements SearchMetricsMXBean {
+    /** Where a move came from. */
+    public enum MoveSource { IMMEDIATE, BOOK, PONDER, SOLVER, SEARCH }
+
+    /** Plies tracked for the branching factor. */
+    public static final int MAX_PLY = 64;
+
+    private static final SearchMetrics GLOBAL = new SearchMetrics();
+
+    private final AtomicLongArray movesBySource = new AtomicLongArray(MoveSource.values().length);
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder searchNanos = new LongAdder();
+    private final AtomicLongArray plyNodes = new AtomicLongArray(MAX_PLY);
+    private final LongAdder expanded = new LongAdder();
+    private final LongAdder cutoffs = new LongAdder();
+    private final LongAdder firstMoveCutoffs = new LongAdder();
+    private final LongAdder ttProbes = new LongAdder();
+    private final LongAdder ttHits = new LongAdder();
+    private final LongAdder ttCollisions = new LongAdder();
+    private final LatencyHistogram moveLatency = new LatencyHistogram();
+
+    private final LongAdder dbSavedGames = new LongAdder();
+    private final LongAdder dbErrors = new LongAdder();
+    private final LatencyHistogram dbSaveLatency = new LatencyHistogram();
+
+    private ScheduledExecutorService logger;
+    private boolean registered;
+
+    /** Metrics shared by every AI and DAO of the process. */
+    public static SearchMetrics global() { return GLOBAL; }
+
+    /** One chosen move: its latency, where it came from and the nodes it took (search and solver). */
+    public void recordMove(MoveSource source, long nanos, long moveNodes) {
+        movesBySource.incrementAndGet(source.ordinal());
+        moveLatency.record(nanos);
+        if (moveNodes > 0) {
+            nodes.add(moveNodes);
+            searchNanos.add(nanos);
+        }
+    }
+
+    /** Tree statistics of one search (pondering included); plyNodes[d] = nodes visited at ply d. */
+    public void recordTree(long[] plyNodes, long expanded, long cutoffs, long firstMoveCutoffs,
+                           long ttProbes, long ttHits, long ttCollisions) {
+        for (int d = 0; d < plyNodes.length && d < MAX_PLY; d++)
+            if (plyNodes[d] != 0) this.plyNodes.addAndGet(d, plyNodes[d]);
+        this.expanded.add(expanded);
+        this.cutoffs.add(cutoffs);
+        this.firstMoveCutoffs.add(firstMoveCutoffs);
+        this.ttProbes.add(ttProbes);
+        this.ttHits.add(ttHits);
+        this.ttCollisions.add(ttCollisions);
+    }
+
+    /** One committed batch of games. */
+    public void recordDbSave(int games, long nanos) {
+        dbSavedGames.add(games);
+        dbSaveLatency.record(nanos);
+    }
+
+    public void recordDbError() { dbErrors.increment(); }
+
+    @Override public long getMoves() {
+        long n = 0;
+        for (int i = 0; i < movesBySource.length(); i++) n += movesBySource.get(i);
+        return n;
+    }
+    @Override public long getBookMoves() { return movesBySource.get(MoveSource.BOOK.ordinal()); }
+    @Override public long getSolvedMoves() { return movesBySource.get(MoveSource.SOLVER.ordinal()); }
+    @Override public long getPonderHits() { return movesBySource.get(MoveSource.PONDER.ordinal()); }
+    @Override public long getNodes() { return nodes.sum(); }
+
+    @Override public double getNodesPerSecond() {
+        long ns = searchNanos.sum();
+        return ns == 0 ? 0 : nodes.sum() * 1e9 / ns;
+    }
+
+    @Override public double[] getBranchingFactors() {
+        int n = 0;
+        while (n + 1 < MAX_PLY && plyNodes.get(n) != 0 && plyNodes.get(n + 1) != 0) n++;
+        double[] bf = new double[n];
+        for (int d = 0; d < n; d++) bf[d] = (double) plyNodes.get(d + 1) / plyNodes.get(d);
+        return bf;
+    }
+
+    @Override public double getCutoffRate() { return ratio(cutoffs.sum(), expanded.sum()); }
+    @Override public double getFirstMoveCutoffRate() { return ratio(firstMoveCutoffs.sum(), cutoffs.sum()); }
+    @Override public double getTtHitRate() { return ratio(ttHits.sum(), ttProbes.sum()); }
+    @Override public double getTtCollisionRate() { return ratio(ttCollisions.sum(), ttProbes.sum()); }
+    @Override public double getMoveLatencyMeanMillis() { return moveLatency.getMeanMillis(); }
+    @Override public double getMoveLatencyP50Millis() { return moveLatency.getPercentileMillis(50); }
+    @Override public double getMoveLatencyP90Millis() { return moveLatency.getPercentileMillis(90); }
+    @Override public double getMoveLatencyP99Millis() { return moveLatency.getPercentileMillis(99); }
+    @Override public long getDbSaves() { return dbSaveLatency.getCount(); }
+    @Override public long getDbSavedGames() { return dbSavedGames.sum(); }
+    @Override public long getDbErrors() { return dbErrors.sum(); }
+    @Override public double getDbSaveLatencyMeanMillis() { return dbSaveLatency.getMeanMillis(); }
+    @Override public double getDbSaveLatencyP99Millis() { return dbSaveLatency.getPercentileMillis(99); }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < movesBySource.length(); i++) movesBySource.set(i, 0);
+        for (int i = 0; i < MAX_PLY; i++) plyNodes.set(i, 0);
+        for (LongAdder a : new LongAdder[] { nodes, searchNanos, expanded, cutoffs, firstMoveCutoffs,
+                ttProbes, ttHits, ttCollisions, dbSavedGames, dbErrors }) a.reset();
+        moveLatency.reset();
+        dbSaveLatency.reset();
+    }
+
+    private static double ratio(long a, long b) { return b == 0 ? 0 : (double) a / b; }
+
+    /** Current figures on one line. */
+    public String logLine() {
+        StringBuilder bf = new StringBuilder();
+        double[] b = getBranchingFactors();
+        for (int d = 0; d < b.length && d < 8; d++) bf.append(d == 0 ? "" : "/").append(String.format("%.1f", b[d]));
+        return String.format("Metrics: moves=%d (book %d, solved %d, ponder %d) nodes=%,d %.0f n/s bf=%s"
+                        + " cut=%.0f%% first=%.0f%% tt hit=%.0f%% coll=%.1f%%"
+                        + " move ms mean=%.1f p50=%.1f p90=%.1f p99=%.1f db saves=%d games=%d err=%d ms mean=%.1f p99=%.1f",
+                getMoves(), getBookMoves(), getSolvedMoves(), getPonderHits(), getNodes(), getNodesPerSecond(), bf,
+                100 * getCutoffRate(), 100 * getFirstMoveCutoffRate(), 100 * getTtHitRate(), 100 * getTtCollisionRate(),
+                getMoveLatencyMeanMillis(), getMoveLatencyP50Millis(), getMoveLatencyP90Millis(), getMoveLatencyP99Millis(),
+                getDbSaves(), getDbSavedGames(), getDbErrors(), getDbSaveLatencyMeanMillis(), getDbSaveLatencyP99Millis());
+    }
+
+    /** Registers this instance with the platform MBean server (once); false if JMX refused it. */
+    public synchronized boolean registerMBean() {
+        if (registered) return true;
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(this, new ObjectName("puissance4:type=SearchMetrics"));
+            registered = true;
+        } catch (JMException ex) {
+            System.err.println("SearchMetrics: JMX registration failed: " + ex.getMessage());
+        }
+        return registered;
+    }
+
+    /** Prints {@link #logLine()} every period on a daemon thread, skipping periods without activity. */
+    public synchronized void startLogging(Duration period) {
+        if (logger != null) return;
+        logger = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "search-metrics");
+            t.setDaemon(true);
+            return t;
+        });
+        long[] last = { -1 };
+        long ms = Math.max(1, period.toMillis());
+        logger.scheduleAtFixedRate(() -> {
+            long activity = getMoves() + getDbSaves();
+            if (activity == last[0]) return;
+            last[0] = activity;
+            System.out.println(logLine());
+        }, ms, ms, TimeUnit.MILLISECONDS);
+    }
+
+    public synchronized void stopLogging() {
+        if (logger != null) logger.shutdown();
+        logger = null;
+    }
+}
@@ -0,0 +1,30 @@
+package model;
+
+/** JMX view of {@link SearchMetrics} (registered as "puissance4:type=SearchMetrics"). */
+public interface SearchMetricsMXBean {
+    long getMoves();
+    long getBookMoves();
+    long getSolvedMoves();
+    long getPonderHits();
+    long getNodes();
+    double getNodesPerSecond();
+    /** Nodes at ply d + 1 over nodes at ply d, for d = 0, 1, ... while both are non-zero. */
+    double[] getBranchingFactors();
+    /** Share of expanded nodes that ended in a beta cutoff. */
+    double getCutoffRate();
+    /** Share of cutoffs produced by the first move tried (move ordering quality). */
+    double getFirstMoveCutoffRate();
+    double getTtHitRate();
+    /** Share of probes that found the slot taken by another position. */
+    double getTtCollisionRate();
+    double getMoveLatencyMeanMillis();
+    double getMoveLatencyP50Millis();
+    double getMoveLatencyP90Millis();
+    double getMoveLatencyP99Millis();
+    long getDbSaves();
+    long getDbSavedGames();
+    long getDbErrors();
+    double getDbSaveLatencyMeanMillis();
+    double getDbSaveLatencyP99Millis();
+    void reset();
+}
@@ -0,0 +1,14 @@
+package model;
+
+/**
+ * Cancellation flag of one search (MinimaxAI, Solver), created by whoever starts it. Cancelling
+ * a token stops the search it was handed to and nothing else, even when that search has not
+ * started yet: a search never clears its token.
+ */
+public final class SearchToken {
+    private volatile boolean cancelled;
+
+    public void cancel() { cancelled = true; }
+
+    public boolean isCancelled() { return cancelled; }
+}
@@ -0,0 +1,151 @@
+package model;
+
+/**
+ * Exact endgame solver: proves whether the side to move wins, draws or loses with perfect play.
+ *
+ * Negamax over the three values 1 / 0 / -1, run as two null-window searches (win or not, then
+ * draw or loss), with its own transposition table (draft = empty cells left, best move kept
+ * for ordering). Threats prune most of the tree before any move is tried: an immediate win
+ * ends the node, two open opponent wins lose it, a single one forces the block, and a move
+ * right below an opponent's winning cell is never played. The remaining moves are tried by
+ * the number of winning cells they leave us, then center first.
+ *
+ * Meant for positions with few empty cells; solve() gives up at its deadline or once its
+ * SearchToken is cancelled.
+ */
+public final class Solver {
+    /** Result of an interrupted solve. */
+    public static final int UNKNOWN = Integer.MIN_VALUE;
+
+    private final TranspositionTable tt;
+    private int ttGeometry; // Zobrist keys only tell positions apart within one geometry
+    private BitBoard board;
+    private int[][] moveBuf;
+    private int[][] orderBuf;
+
+    private long nodes;
+    private long deadline;
+    private SearchToken token;
+    private boolean aborted;
+
+    public Solver(int ttMegabytes) {
+        this.tt = new TranspositionTable(Math.max(1, ttMegabytes));
+    }
+
+    /** solve() that only stops at its deadline. */
+    public int solve(BitBoard board, long deadlineNanos) {
+        return solve(board, deadlineNanos, new SearchToken());
+    }
+
+    /**
+     * 1 if the side to move wins, 0 for a draw, -1 if it loses, or UNKNOWN once deadlineNanos
+     * (System.nanoTime()) has passed or token was cancelled (before or during the solve).
+     * board is played and retracted in place and left as it was.
+     */
+    public int solve(BitBoard board, long deadlineNanos, SearchToken token) {
+        this.board = board;
+        int plies = board.getRows() * board.getCols() - board.getMoveCount() + 1;
+        int cols = board.getCols();
+        if (moveBuf == null || moveBuf.length < plies || moveBuf[0].length != cols) {
+            moveBuf = new int[plies][cols];
+            orderBuf = new int[plies][cols];
+        }
+        int geometry = (board.getRows() << 16) | (cols << 8) | board.getWinLength();
+        if (geometry != ttGeometry) {
+            tt.clear();
+            ttGeometry = geometry;
+        }
+        deadline = deadlineNanos;
+        this.token = token;
+        aborted = token.isCancelled();
+        nodes = 0;
+        tt.newSearch();
+        int v = negamax(0, 1, 0);
+        if (aborted) return UNKNOWN;
+        if (v < 1) {
+            v = negamax(-1, 0, 0);
+            if (aborted) return UNKNOWN;
+        }
+        return v;
+    }
+
+    /** Nodes visited by the last solve. */
+    public long getNodeCount() { return nodes; }
+
+    private int negamax(int alpha, int beta, int ply) {
+        nodes++;
+        if ((nodes & 4095) == 0 && (token.isCancelled() || System.nanoTime() >= deadline)) aborted = true;
+        if (aborted) return 0;
+        if (board.isFull()) return 0;
+
+        int me = board.getPlayerToMove(), opp = 3 - me;
+        if (board.winningColumns(me) != 0) return 1;
+        int candidates = board.winningColumns(opp);
+        if (Integer.bitCount(candidates) > 1) return -1;           // two open wins: cannot block both
+        if (candidates == 0) candidates = board.playableColumns();
+        candidates &= ~board.belowThreatColumns(opp);               // would let opp win on top
+        if (candidates == 0) return -1;
+        if (board.getMoveCount() + 1 == board.getRows() * board.getCols()) return 0; // last cell, no win
+
+        long hash = board.getHash();
+        long entry = tt.probe(hash);
+        int ttMove = -1;
+        if (entry != 0) {
+            int v = TranspositionTable.value(entry);
+            int bound = TranspositionTable.bound(entry);
+            if (bound == TranspositionTable.EXACT) return v;
+            if (bound == TranspositionTable.LOWER && v >= beta) return v;
+            if (bound == TranspositionTable.UPPER && v <= alpha) return v;
+            ttMove = TranspositionTable.move(entry);
+        }
+
+        int n = orderMoves(candidates, ply, me, ttMove);
+        int[] moves = moveBuf[ply];
+        int best = -1, bestMove = moves[0];
+        for (int i = 0; i < n; i++) {
+            int c = moves[i];
+            board.play(c);
+            int v = -negamax(-beta, -alpha, ply + 1);
+            board.undo();
+            if (aborted) return 0;
+            if (v > best) { best = v; bestMove = c; }
+            if (v >= beta) {
+                tt.store(hash, v, emptyCells(), TranspositionTable.LOWER, c);
+                return v;
+            }
+            if (v > alpha) alpha = v;
+        }
+        // null window: no cutoff means every move failed low
+        tt.store(hash, best, emptyCells(), TranspositionTable.UPPER, bestMove);
+        return best;
+    }
+
+    private int emptyCells() {
+        return board.getRows() * board.getCols() - board.getMoveCount();
+    }
+
+    // candidate columns into moveBuf[ply]: TT move, then most winning cells created, then center first
+    private int orderMoves(int candidates, int ply, int me, int ttMove) {
+        int cols = board.getCols();
+        int[] moves = moveBuf[ply];
+        int[] keys = orderBuf[ply];
+        int n = 0;
+        for (int i = 0; i < cols; i++) {
+            int c = cols / 2 + ((i & 1) == 0 ? i / 2 : -(i + 1) / 2);
+            if ((candidates & (1 << c)) == 0) continue;
+            int key;
+            if (c == ttMove) {
+                key = Integer.MAX_VALUE;
+            } else {
+                board.play(c);
+                key = board.threatCount(me) * cols + (cols - i);
+                board.undo();
+            }
+            int j = n++;
+            while (j > 0 && keys[j - 1] < key) { keys[j] = keys[j - 1]; moves[j] = moves[j - 1]; j--; }
+            keys[j] = key;
+            moves[j] = c;
+        }
+        return n;
+    }
+}
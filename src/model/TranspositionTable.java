@@ -0,0 +1,84 @@
+package model;
+
+/**
+ * Fixed-size transposition table keyed by the Zobrist hash of a {@link BitBoard}.
+ *
+ * Entries live in two parallel long arrays, 16 bytes per slot, with a power-of-two capacity
+ * derived from a memory budget. Replacement is depth-preferred: a slot is overwritten by a
+ * deeper (or equal) search, or by any search once its entry belongs to an older generation
+ * (see {@link #newSearch()}).
+ *
+ * The table is lock-free so search threads can share it: each slot stores key ^ data next to
+ * data, and a probe only accepts the slot if the two words still agree. A write torn by a
+ * concurrent store therefore reads as a miss instead of a wrong entry.
+ */
+public final class TranspositionTable {
+    public static final int EXACT = 0;
+    public static final int LOWER = 1; // value is a lower bound (fail high)
+    public static final int UPPER = 2; // value is an upper bound (fail low)
+
+    private static final int ENTRY_BYTES = 16;
+
+    private final long[] checks; // key ^ data
+    private final long[] data;
+    private final int mask;
+    private volatile int generation;
+
+    public TranspositionTable(int megabytes) {
+        long entries = Math.max(1L, (long) megabytes * 1024 * 1024 / ENTRY_BYTES);
+        int capacity = Integer.highestOneBit((int) Math.min(entries, 1 << 30));
+        checks = new long[capacity];
+        data = new long[capacity];
+        mask = capacity - 1;
+    }
+
+    public int capacity() { return data.length; }
+
+    /** Marks entries from previous searches as replaceable. */
+    public void newSearch() { generation = (generation + 1) & 0xFF; }
+
+    public void clear() {
+        java.util.Arrays.fill(checks, 0L);
+        java.util.Arrays.fill(data, 0L);
+    }
+
+    /** Packed entry for key, or 0 on a miss. Decode with the static accessors below. */
+    public long probe(long key) {
+        int i = (int) key & mask;
+        long d = data[i];
+        if (d == 0 || (checks[i] ^ d) != key) return 0L;
+        return d;
+    }
+
+    /** True if the slot of key holds another position (a probe miss caused by a collision). */
+    public boolean isTakenByOther(long key) {
+        int i = (int) key & mask;
+        long d = data[i];
+        return d != 0 && (checks[i] ^ d) != key;
+    }
+
+    public static int value(long entry) { return (int) entry; }
+    public static int draft(long entry) { return (int) (entry >>> 32) & 0xFF; }
+    public static int bound(long entry) { return (int) (entry >>> 40) & 0x3; }
+    /** Best move stored with the entry, or -1. */
+    public static int move(long entry) { return ((int) (entry >>> 42) & 0xFF) - 1; }
+
+    public void store(long key, int value, int draft, int bound, int move) {
+        int i = (int) key & mask;
+        int gen = generation;
+        long old = data[i];
+        if (old != 0) {
+            int oldDraft = (int) (old >>> 32) & 0xFF;
+            int oldGen = (int) (old >>> 50) & 0xFF;
+            if (oldGen == gen && oldDraft > draft) return;
+        }
+        long d = (value & 0xFFFFFFFFL)
+                | ((long) (draft & 0xFF) << 32)
+                | ((long) (bound & 0x3) << 40)
+                | ((long) ((move + 1) & 0xFF) << 42)
+                | ((long) gen << 50)
+                | (1L << 58); // occupied marker, keeps data != 0
+        data[i] = d;
+        checks[i] = key ^ d;
+    }
+}
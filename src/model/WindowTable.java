@@ -0,0 +1,64 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Precomputed winLength-long windows (horizontal, vertical, both diagonals) of a board geometry,
+ * shared by every {@link BitBoard} of that geometry.
+ *
+ * For each bitboard cell index, cellWindows[cellStart[bit] .. cellStart[bit + 1]) lists the
+ * windows through that cell. A board keeps one packed byte per window (player 1 count in the
+ * low nibble, player 2 count in the high nibble) and {@link #value} scores such a byte, so a
+ * move only touches the handful of windows through its cell.
+ */
+final class WindowTable {
+    private static final Map<Integer, WindowTable> CACHE = new ConcurrentHashMap<>();
+
+    final int windowCount;
+    final int[] cellStart;
+    final int[] cellWindows;
+    /** Score of a packed window byte from player 1's point of view. */
+    final int[] value = new int[256];
+
+    static WindowTable of(int rows, int cols, int winLength) {
+        return CACHE.computeIfAbsent((rows << 16) | (cols << 8) | winLength,
+                k -> new WindowTable(rows, cols, winLength));
+    }
+
+    private WindowTable(int rows, int cols, int winLength) {
+        int stride = rows + 1;
+        int cells = stride * cols;
+        int[][] dirs = { {1, 0}, {0, 1}, {1, 1}, {1, -1} }; // (dc, dh): horizontal, vertical, diagonals
+
+        List<int[]> windows = new ArrayList<>();
+        for (int[] d : dirs) {
+            for (int c = 0; c < cols; c++) for (int h = 0; h < rows; h++) {
+                int endC = c + d[0] * (winLength - 1), endH = h + d[1] * (winLength - 1);
+                if (endC < 0 || endC >= cols || endH < 0 || endH >= rows) continue;
+                int[] bits = new int[winLength];
+                for (int k = 0; k < winLength; k++) bits[k] = (c + d[0] * k) * stride + h + d[1] * k;
+                windows.add(bits);
+            }
+        }
+        windowCount = windows.size();
+
+        // CSR layout: windows through each cell
+        cellStart = new int[cells + 1];
+        for (int[] bits : windows) for (int bit : bits) cellStart[bit + 1]++;
+        for (int i = 0; i < cells; i++) cellStart[i + 1] += cellStart[i];
+        cellWindows = new int[cellStart[cells]];
+        int[] fill = cellStart.clone();
+        for (int w = 0; w < windowCount; w++) for (int bit : windows.get(w)) cellWindows[fill[bit]++] = w;
+
+        // open windows only: 1 disc = 1, 2 discs = 4, 3 discs = 16 ... (completed lines are wins, scored by the search)
+        for (int c1 = 0; c1 < winLength; c1++) for (int c2 = 0; c2 < winLength; c2++) {
+            int v = 0;
+            if (c2 == 0 && c1 > 0) v = 1 << (2 * (c1 - 1));
+            else if (c1 == 0 && c2 > 0) v = -(1 << (2 * (c2 - 1)));
+            value[c1 | (c2 << 4)] = v;
+        }
+    }
+}
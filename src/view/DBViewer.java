@@ -2,13 +2,15 @@ package view;
 
 import model.DBHelper;
 import model.Game;
+import model.GameMode;
 import model.PartieDAO;
+import model.PositionKey;
+import model.Rules;
 
 import javax.swing.*;
-import javax.swing.table.DefaultTableModel;
 import java.awt.*;
 import java.io.File;
-import java.sql.*;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,19 +24,17 @@ import java.util.List;
  */
 public class DBViewer extends JFrame {
 
-    private static final int ROWS = 9, COLS = 9;
-
     // ── DB ──
     private final DBHelper dbHelper;
 
     // ── Tableau ──
-    private final DefaultTableModel tableModel;
+    private final PartieTableModel tableModel;
     private final JTable dataTable;
     private final JLabel statusLabel;
 
     // ── Visualiseur ──
-    private final BoardRenderer boardNormal = new BoardRenderer("Plateau");
-    private final BoardRenderer boardMirror = new BoardRenderer("Miroir");
+    private final BoardRenderer boardNormal = new BoardRenderer("Plateau", false);
+    private final BoardRenderer boardMirror = new BoardRenderer("Miroir", true); // même plateau, lu à l'envers
     private final DefaultListModel<String> movesModel = new DefaultListModel<>();
     private final JList<String> movesList = new JList<>(movesModel);
     private final JLabel moveLabel = new JLabel("Coup : – / –", SwingConstants.CENTER);
@@ -43,9 +43,26 @@ public class DBViewer extends JFrame {
     private final JButton btnNext   = new JButton("Next >");
     private final JButton btnFin    = new JButton(">|");
 
+    // ── Filtres ──
+    private final JComboBox<String> filterWinner =
+            new JComboBox<>(new String[]{"Tous", "0 (en cours / nul)", "1", "2"});
+    private final JComboBox<Object> filterMode = new JComboBox<>(new Object[]{
+            "Tous", GameMode.HUMAN_VS_HUMAN, GameMode.HUMAN_VS_AI, GameMode.AI_VS_AI});
+    private final JTextField filterMinCoups = new JTextField(3);
+    private final JTextField filterMaxCoups = new JTextField(3);
+    private final JTextField filterFrom = new JTextField(8);
+    private final JTextField filterTo = new JTextField(8);
+    private final JTextField filterPrefix = new JTextField(8);
+    private final JTextField filterRegle = new JTextField(5);
+    private final JCheckBox filterPosition = new JCheckBox("Position affichée");
+
     // ── État navigation ──
     private final List<Integer> moves = new ArrayList<>(); // colonnes 1-based
+    private Rules rules = Rules.DEFAULT;                   // règles de la partie affichée
     private int currentIndex = 0;
+    // calculés une fois à la sélection : plateau et cases gagnantes après chaque coup (indice = nb de coups)
+    private int[][][] snapshots = new int[0][][];
+    private int[][][] winSnapshots = new int[0][][];
 
     // ──────────────────────────────────────────────────────────
     public DBViewer(DBHelper dbHelper) {
@@ -58,32 +75,35 @@ public class DBViewer extends JFrame {
         setLayout(new BorderLayout(4, 4));
 
         // ── Tableau des parties ──
-        tableModel = new DefaultTableModel(
-                new String[]{"id", "coups", "winner", "mode", "situation_id"}, 0) {
-            @Override public boolean isCellEditable(int r, int c) { return false; }
-        };
+        // Modèle paginé, chargé en arrière-plan (pas de tri côté client : il lirait toutes les lignes)
+        statusLabel = new JLabel("Chargement...", SwingConstants.LEFT);
+        tableModel = new PartieTableModel(dbHelper, statusLabel::setText);
         dataTable = new JTable(tableModel);
-        dataTable.setAutoCreateRowSorter(true);
         dataTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
         dataTable.setRowHeight(22);
         dataTable.getSelectionModel().addListSelectionListener(e -> {
             if (!e.getValueIsAdjusting()) onRowSelected();
         });
+        int[] widths = {50, 220, 60, 150, 80, 60};
+        for (int i = 0; i < widths.length; i++)
+            dataTable.getColumnModel().getColumn(i).setPreferredWidth(widths[i]);
         JScrollPane tableScroll = new JScrollPane(dataTable);
-        tableScroll.setBorder(BorderFactory.createTitledBorder("Parties"));
-        tableScroll.setPreferredSize(new Dimension(480, 0));
+        JPanel tablePanel = new JPanel(new BorderLayout(0, 4));
+        tablePanel.setBorder(BorderFactory.createTitledBorder("Parties"));
+        tablePanel.setPreferredSize(new Dimension(480, 0));
+        tablePanel.add(buildFilterPanel(), BorderLayout.NORTH);
+        tablePanel.add(tableScroll, BorderLayout.CENTER);
 
         // ── Panneau de visualisation ──
         JPanel vizPanel = buildVizPanel();
 
         // ── Split gauche / droite ──
-        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, tableScroll, vizPanel);
+        JSplitPane split = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, tablePanel, vizPanel);
         split.setResizeWeight(0.35);
         split.setContinuousLayout(true);
         add(split, BorderLayout.CENTER);
 
         // ── Status bar + bouton refresh ──
-        statusLabel = new JLabel("Chargement...", SwingConstants.LEFT);
         statusLabel.setBorder(BorderFactory.createEmptyBorder(3, 8, 3, 8));
         JButton btnRefresh = new JButton("⟳ Refresh");
         btnRefresh.addActionListener(e -> loadFromDb());
@@ -100,6 +120,107 @@ public class DBViewer extends JFrame {
         loadFromDb();
     }
 
+    // ══════════════════════════════════════════════════════════
+    // Filtres (appliqués côté serveur, voir PartieFilter)
+    // ══════════════════════════════════════════════════════════
+
+    private JPanel buildFilterPanel() {
+        JPanel row1 = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        row1.add(new JLabel("Gagnant"));   row1.add(filterWinner);
+        row1.add(new JLabel("Mode"));      row1.add(filterMode);
+        row1.add(new JLabel("Coups"));     row1.add(filterMinCoups);
+        row1.add(new JLabel("à"));         row1.add(filterMaxCoups);
+
+        JPanel row2 = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        row2.add(new JLabel("Du"));        row2.add(filterFrom);
+        row2.add(new JLabel("au"));        row2.add(filterTo);
+        row2.add(new JLabel("Début"));     row2.add(filterPrefix);
+        row2.add(new JLabel("Règle"));     row2.add(filterRegle);
+
+        JButton btnFilter = new JButton("Filtrer");
+        JButton btnClear  = new JButton("Effacer");
+        btnFilter.addActionListener(e -> applyFilter());
+        btnClear.addActionListener(e -> clearFilter());
+        filterPosition.setToolTipText("Parties passant par la position affichée (ou son miroir)");
+        JPanel row3 = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        row3.add(filterPosition);
+        row3.add(btnFilter);
+        row3.add(btnClear);
+
+        filterFrom.setToolTipText("AAAA-MM-JJ");
+        filterTo.setToolTipText("AAAA-MM-JJ");
+        filterPrefix.setToolTipText("Premiers coups, ex: 4534");
+        filterRegle.setToolTipText("Colonnes x lignes x alignement, ex: 7x6x4");
+
+        JPanel panel = new JPanel(new GridLayout(3, 1, 0, 2));
+        panel.add(row1);
+        panel.add(row2);
+        panel.add(row3);
+        return panel;
+    }
+
+    private void applyFilter() {
+        PartieFilter f = new PartieFilter();
+        try {
+            int w = filterWinner.getSelectedIndex();
+            if (w > 0) f.winner = w - 1;
+            Object m = filterMode.getSelectedItem();
+            if (m instanceof GameMode) f.mode = (GameMode) m;
+            f.minCoups = parseInt(filterMinCoups.getText());
+            f.maxCoups = parseInt(filterMaxCoups.getText());
+            f.from = parseDate(filterFrom.getText());
+            f.to = parseDate(filterTo.getText());
+            String prefix = filterPrefix.getText().replaceAll("[^1-9]", "");
+            if (!prefix.isEmpty()) f.prefix = prefix;
+            if (!filterRegle.getText().trim().isEmpty()) f.rules = Rules.parse(filterRegle.getText());
+        } catch (IllegalArgumentException | java.time.format.DateTimeParseException ex) {
+            JOptionPane.showMessageDialog(this, "Filtre invalide : " + ex.getMessage(),
+                    "Erreur", JOptionPane.ERROR_MESSAGE);
+            return;
+        }
+        if (filterPosition.isSelected()) {
+            if (currentIndex == 0) {
+                JOptionPane.showMessageDialog(this, "Sélectionnez d'abord une partie et une position.",
+                        "Position", JOptionPane.INFORMATION_MESSAGE);
+                return;
+            }
+            f.position = displayedPositionKey();
+        }
+        tableModel.setFilter(f);
+        clearViz();
+    }
+
+    private void clearFilter() {
+        filterWinner.setSelectedIndex(0);
+        filterMode.setSelectedIndex(0);
+        for (JTextField t : new JTextField[]{filterMinCoups, filterMaxCoups, filterFrom, filterTo, filterPrefix, filterRegle})
+            t.setText("");
+        filterPosition.setSelected(false);
+        tableModel.setFilter(PartieFilter.NONE);
+        clearViz();
+    }
+
+    // Clé canonique de la position affichée (coups 1..currentIndex)
+    private PositionKey displayedPositionKey() {
+        int[][] board = snapshots[currentIndex];
+        int rows = rules.getRows(), cols = rules.getCols();
+        int[][] mirror = new int[rows][cols];
+        for (int r = 0; r < rows; r++)
+            for (int c = 0; c < cols; c++) mirror[r][c] = board[r][cols - 1 - c];
+        int win = rules.getWinLength();
+        return PositionKey.min(PositionKey.of(board, win), PositionKey.of(mirror, win));
+    }
+
+    private static Integer parseInt(String s) {
+        s = s.trim();
+        return s.isEmpty() ? null : Integer.valueOf(s);
+    }
+
+    private static LocalDate parseDate(String s) {
+        s = s.trim();
+        return s.isEmpty() ? null : LocalDate.parse(s);
+    }
+
     // ══════════════════════════════════════════════════════════
     // Construction du panneau de visualisation
     // ══════════════════════════════════════════════════════════
@@ -113,6 +234,15 @@ public class DBViewer extends JFrame {
         // Liste des coups
         movesList.setFixedCellHeight(20);
         movesList.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+        // le marqueur du coup courant est ajouté au rendu : la liste n'est pas reconstruite
+        movesList.setCellRenderer(new DefaultListCellRenderer() {
+            @Override
+            public Component getListCellRendererComponent(JList<?> list, Object value, int index,
+                                                          boolean selected, boolean focus) {
+                String arrow = (index == currentIndex - 1) ? "▶ " : "  ";
+                return super.getListCellRendererComponent(list, arrow + value, index, selected, focus);
+            }
+        });
         JScrollPane movesScroll = new JScrollPane(movesList);
         movesScroll.setBorder(BorderFactory.createTitledBorder("Coups joués"));
         movesScroll.setPreferredSize(new Dimension(0, 150));
@@ -123,6 +253,7 @@ public class DBViewer extends JFrame {
         btnPrev.addActionListener(e  -> goTo(currentIndex - 1));
         btnNext.addActionListener(e  -> goTo(currentIndex + 1));
         btnFin.addActionListener(e   -> goTo(moves.size()));
+        bindNavigationKeys();
 
         moveLabel.setFont(moveLabel.getFont().deriveFont(Font.BOLD, 13f));
         JPanel nav = new JPanel(new FlowLayout(FlowLayout.CENTER, 10, 4));
@@ -162,36 +293,16 @@ public class DBViewer extends JFrame {
     }
 
     private void loadFromDb() {
-        tableModel.setRowCount(0);
-        try (Connection c = dbHelper.getConnection();
-             Statement st = c.createStatement();
-             ResultSet rs = st.executeQuery(
-                 "SELECT id, sequence, winner, mode, situation_id " +
-                 "FROM partie ORDER BY id DESC LIMIT 500")) {
-            int n = 0;
-            while (rs.next()) {
-                String seq = rs.getString("sequence");
-                int nbCoups = (seq != null) ? seq.replaceAll("\\D", "").length() : 0;
-                tableModel.addRow(new Object[]{
-                    rs.getObject("id"),
-                    nbCoups + " coups  [" + (seq != null ? seq : "") + "]",
-                    rs.getObject("winner"),
-                    rs.getString("mode"),
-                    rs.getObject("situation_id")
-                });
-                n++;
-            }
-            statusLabel.setText(n + " partie(s) en base");
-            // ajuster largeurs
-            int[] widths = {50, 220, 60, 150, 80};
-            for (int i = 0; i < widths.length; i++)
-                dataTable.getColumnModel().getColumn(i).setPreferredWidth(widths[i]);
-        } catch (Exception ex) {
-            statusLabel.setText("Erreur DB : " + ex.getMessage());
-        }
+        tableModel.refresh();
         clearViz();
     }
 
+    @Override
+    public void dispose() {
+        tableModel.close();
+        super.dispose();
+    }
+
     // ══════════════════════════════════════════════════════════
     // Sélection d'une ligne → chargement immédiat
     // ══════════════════════════════════════════════════════════
@@ -201,31 +312,92 @@ public class DBViewer extends JFrame {
         if (view < 0) { clearViz(); return; }
         int row = dataTable.convertRowIndexToModel(view);
 
-        // La colonne 1 contient "N coups  [sequence]"
-        Object cell = tableModel.getValueAt(row, 1);
-        if (cell == null) { clearViz(); return; }
-        String raw = cell.toString();
-        // extraire ce qui est entre [ ]
-        int lb = raw.indexOf('['), rb = raw.lastIndexOf(']');
-        String sequence = (lb >= 0 && rb > lb) ? raw.substring(lb + 1, rb).trim() : raw.trim();
+        // null tant que la page de la ligne n'est pas chargée
+        String sequence = tableModel.getSequence(row);
+        if (sequence == null) { clearViz(); return; }
 
+        rules = tableModel.getRules(row);
         moves.clear();
         for (char ch : sequence.toCharArray())
             if (Character.isDigit(ch)) moves.add(Character.getNumericValue(ch)); // 1-based
+        buildSnapshots();
+
+        // Liste des coups construite une fois ; la navigation ne déplace que le marqueur ▶
+        movesModel.clear();
+        for (int i = 0; i < moves.size(); i++) {
+            String player = (i % 2 == 0) ? "J1" : "J2";
+            movesModel.addElement(String.format("%2d. %s → col %d", i + 1, player, moves.get(i)));
+        }
 
         currentIndex = 0;
         goTo(moves.size()); // affiche la position finale directement
     }
 
+    /** Rejoue la partie une seule fois et garde le plateau après chaque coup. */
+    private void buildSnapshots() {
+        snapshots = new int[moves.size() + 1][][];
+        winSnapshots = new int[moves.size() + 1][][];
+        int rows = rules.getRows(), cols = rules.getCols();
+        snapshots[0] = new int[rows][cols];
+        int player = 1;
+        for (int i = 0; i < moves.size(); i++) {
+            int[][] board = new int[rows][];
+            for (int r = 0; r < rows; r++) board[r] = snapshots[i][r].clone();
+            int col = moves.get(i) - 1;
+            int r = Game.dropOnBoard(board, col, player);
+            if (r < 0) { // séquence invalide : on s'arrête au dernier coup jouable
+                moves.subList(i, moves.size()).clear();
+                snapshots = java.util.Arrays.copyOf(snapshots, i + 1);
+                winSnapshots = java.util.Arrays.copyOf(winSnapshots, i + 1);
+                return;
+            }
+            snapshots[i + 1] = board;
+            if (Game.checkWinOnBoard(board, r, col, rules.getWinLength()))
+                winSnapshots[i + 1] = collectWin(board, r, col, rules.getWinLength());
+            player = 3 - player;
+        }
+    }
+
+    // ←/→ coup par coup, Début/Fin : partout dans la fenêtre, y compris depuis la table
+    private void bindNavigationKeys() {
+        Object[][] keys = {
+            { "LEFT",  "navPrev",  (Runnable) () -> goTo(currentIndex - 1) },
+            { "RIGHT", "navNext",  (Runnable) () -> goTo(currentIndex + 1) },
+            { "HOME",  "navDebut", (Runnable) () -> goTo(0) },
+            { "END",   "navFin",   (Runnable) () -> goTo(moves.size()) },
+        };
+        JComponent root = getRootPane();
+        for (Object[] k : keys) {
+            Runnable r = (Runnable) k[2];
+            Action a = new AbstractAction() {
+                @Override public void actionPerformed(java.awt.event.ActionEvent e) { r.run(); }
+            };
+            KeyStroke ks = KeyStroke.getKeyStroke((String) k[0]);
+            root.getInputMap(JComponent.WHEN_IN_FOCUSED_WINDOW).put(ks, k[1]);
+            root.getActionMap().put(k[1], a);
+            // la table et la liste consomment ces touches par défaut
+            for (JComponent c : new JComponent[]{ dataTable, movesList }) {
+                c.getInputMap(JComponent.WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(ks, k[1]);
+                c.getInputMap(JComponent.WHEN_FOCUSED).put(ks, k[1]);
+                c.getActionMap().put(k[1], a);
+            }
+        }
+    }
+
     // ══════════════════════════════════════════════════════════
     // Navigation
     // ══════════════════════════════════════════════════════════
 
     private void goTo(int idx) {
         if (moves.isEmpty()) return;
+        int previous = currentIndex;
         currentIndex = Math.max(0, Math.min(idx, moves.size()));
-        renderBoards();
-        updateMovesUI();
+        boardNormal.setBoard(snapshots[currentIndex], winSnapshots[currentIndex]);
+        boardMirror.setBoard(snapshots[currentIndex], winSnapshots[currentIndex]);
+        repaintMove(previous - 1);
+        repaintMove(currentIndex - 1);
+        if (currentIndex > 0)
+            movesList.ensureIndexIsVisible(currentIndex - 1);
         btnDebut.setEnabled(currentIndex > 0);
         btnPrev.setEnabled(currentIndex > 0);
         btnNext.setEnabled(currentIndex < moves.size());
@@ -233,61 +405,25 @@ public class DBViewer extends JFrame {
         moveLabel.setText("Coup : " + currentIndex + " / " + moves.size());
     }
 
-    private void updateMovesUI() {
-        movesModel.clear();
-        for (int i = 0; i < moves.size(); i++) {
-            String arrow = (i == currentIndex - 1) ? "▶" : " ";
-            String player = (i % 2 == 0) ? "J1" : "J2";
-            movesModel.addElement(String.format("%s %2d. %s → col %d", arrow, i + 1, player, moves.get(i)));
-        }
-        if (currentIndex > 0)
-            movesList.ensureIndexIsVisible(currentIndex - 1);
-    }
-
-    private void renderBoards() {
-        int[][] board = new int[ROWS][COLS];
-        int player = 1;
-        for (int i = 0; i < currentIndex; i++) {
-            Game.dropOnBoard(board, moves.get(i) - 1, player);
-            player = 3 - player;
-        }
-
-        // Vérifier victoire sur le plateau courant
-        int[][] winPos = null;
-        if (currentIndex > 0) {
-            int lastCol = moves.get(currentIndex - 1) - 1;
-            // trouver la ligne du dernier jeton
-            for (int r = 0; r < ROWS; r++) {
-                if (board[r][lastCol] != 0) {
-                    if (Game.checkWinOnBoard(board, r, lastCol, 4)) {
-                        winPos = collectWin(board, r, lastCol);
-                    }
-                    break;
-                }
-            }
-        }
-
-        boardNormal.setBoard(board, winPos);
-
-        int[][] mirror = new int[ROWS][COLS];
-        for (int r = 0; r < ROWS; r++)
-            for (int c = 0; c < COLS; c++)
-                mirror[r][c] = board[r][COLS - 1 - c];
-        boardMirror.setBoard(mirror, null);
+    private void repaintMove(int i) {
+        if (i < 0 || i >= movesModel.size()) return;
+        Rectangle cell = movesList.getCellBounds(i, i);
+        if (cell != null) movesList.repaint(cell);
     }
 
-    /** Collecte les 4 cases gagnantes autour de (r,c). */
-    private int[][] collectWin(int[][] board, int startR, int startC) {
+    /** Collecte les win cases alignées autour de (r,c). */
+    private static int[][] collectWin(int[][] board, int startR, int startC, int win) {
         int val = board[startR][startC];
+        int rows = board.length, cols = board[0].length;
         int[][] dirs = {{0,1},{1,0},{1,1},{1,-1}};
         for (int[] d : dirs) {
             List<int[]> cells = new ArrayList<>();
-            for (int k = -3; k <= 3; k++) {
+            for (int k = -(win - 1); k <= win - 1; k++) {
                 int r = startR + k * d[0], c2 = startC + k * d[1];
-                if (r >= 0 && r < ROWS && c2 >= 0 && c2 < COLS && board[r][c2] == val)
+                if (r >= 0 && r < rows && c2 >= 0 && c2 < cols && board[r][c2] == val)
                     cells.add(new int[]{r, c2});
                 else cells.clear();
-                if (cells.size() == 4) return cells.toArray(new int[0][]);
+                if (cells.size() == win) return cells.toArray(new int[0][]);
             }
         }
         return null;
@@ -296,6 +432,8 @@ public class DBViewer extends JFrame {
     private void clearViz() {
         moves.clear();
         currentIndex = 0;
+        snapshots = new int[0][][];
+        winSnapshots = new int[0][][];
         movesModel.clear();
         moveLabel.setText("Coup : – / –");
         boardNormal.setBoard(null, null);
@@ -308,10 +446,12 @@ public class DBViewer extends JFrame {
     // ══════════════════════════════════════════════════════════
 
     static class BoardRenderer extends JPanel {
+        private final boolean mirrored; // affiche board colonnes inversées, sans copie
         private int[][] board;
         private int[][] wins;
 
-        BoardRenderer(String title) {
+        BoardRenderer(String title, boolean mirrored) {
+            this.mirrored = mirrored;
             setBorder(BorderFactory.createTitledBorder(title));
             setBackground(new Color(0, 80, 180));
             setPreferredSize(new Dimension(360, 360));
@@ -325,7 +465,9 @@ public class DBViewer extends JFrame {
             Graphics2D g2 = (Graphics2D) g;
             g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
-            int rows = ROWS, cols = COLS;
+            // plateau vide : géométrie par défaut
+            int rows = board != null ? board.length : Rules.DEFAULT.getRows();
+            int cols = board != null ? board[0].length : Rules.DEFAULT.getCols();
             int inset = 6;
             int cellW = (getWidth()  - inset * 2) / cols;
             int cellH = (getHeight() - inset * 2) / rows;
@@ -340,7 +482,7 @@ public class DBViewer extends JFrame {
                 for (int c = 0; c < cols; c++) {
                     int cx = inset + c * cellW + (cellW - diam) / 2;
                     int cy = inset + r * cellH + (cellH - diam) / 2;
-                    int val = (board != null) ? board[r][c] : 0;
+                    int val = (board != null) ? board[r][mirrored ? cols - 1 - c : c] : 0;
 
                     // Ombre
                     g2.setColor(new Color(0, 0, 0, 60));
@@ -363,7 +505,8 @@ public class DBViewer extends JFrame {
                 g2.setColor(new Color(0, 255, 80));
                 g2.setStroke(new BasicStroke(3));
                 for (int[] p : wins) {
-                    int cx = inset + p[1] * cellW + (cellW - diam) / 2;
+                    int pc = mirrored ? cols - 1 - p[1] : p[1];
+                    int cx = inset + pc * cellW + (cellW - diam) / 2;
                     int cy = inset + p[0] * cellH + (cellH - diam) / 2;
                     g2.drawOval(cx - 2, cy - 2, diam + 4, diam + 4);
                 }
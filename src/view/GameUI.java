@@ -5,6 +5,7 @@ import java.awt.*;
 import model.Game;
 import model.GameMode;
 import model.DBHelper;
+import model.Rules;
 
 public class GameUI extends JFrame {
 
@@ -30,7 +31,11 @@ public class GameUI extends JFrame {
     }
 
     public void startGame(GameMode mode) {
-        Game plateau = new Game();
+        startGame(mode, Rules.DEFAULT);
+    }
+
+    public void startGame(GameMode mode, Rules rules) {
+        Game plateau = new Game(rules);
         currentGrid = new GrillePanel(plateau, mode, this);
         container.add(currentGrid, "GRID");
         showPanel("GRID");
@@ -6,10 +6,15 @@ import model.Game;
 import model.GameMode;
 import model.MinimaxAI;
 import model.DBHelper;
+import model.OpeningBook;
+import model.ProvenResults;
 import model.PartieDAO;
+import model.SearchToken;
 import controller.ControllerJeu;
-import java.awt.event.ActionEvent;
-import java.awt.event.ActionListener;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 public class GrillePanel extends JPanel {
 
@@ -18,11 +23,38 @@ public class GrillePanel extends JPanel {
     Game plateau;
     ControllerJeu controller;
     GameMode mode;
+    private final BoardCanvas canvas;
+    // une IA par joueur, conservée pendant toute la partie (table de transposition réutilisée)
+    private final MinimaxAI[] aiPlayers = new MinimaxAI[3];
+    // temps de réflexion par coup (approfondissement itératif) plutôt qu'une profondeur fixe
+    private static final Duration HUMAN_VS_AI_BUDGET = Duration.ofMillis(500);
+    private static final Duration AI_VS_AI_BUDGET = Duration.ofMillis(200);
+    private static final int AI_DELAY_MS = 300;
+    // HUMAN_VS_AI : l'IA cherche ses réponses pendant que le joueur réfléchit
+    private static final boolean PONDER = true;
+
+    // la recherche tourne hors de l'EDT ; le coup trouvé est rejoué sur l'EDT
+    private final ExecutorService aiExecutor = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ai-search");
+        t.setDaemon(true);
+        return t;
+    });
+    private Future<?> aiTask;
+    private Future<?> ponderTask;
+    private SearchToken ponderSearch;
+    private MinimaxAI thinking;   // IA en cours de recherche, null sinon
+    private SearchToken aiSearch; // annule la recherche du coup, même pas encore démarrée
+    private int aiGeneration;     // incrémentée à chaque annulation : les résultats en retard sont ignorés
+    private Timer aiDelay;        // pause avant le coup de l'IA
+    private final JLabel thinkingLabel = new JLabel(" ");
+    private final Timer thinkingTimer = new Timer(150, e -> updateThinkingLabel());
 
     public GrillePanel(Game plateau, GameMode mode, GameUI window) {
         this.plateau = plateau;
         this.mode = mode;
         this.controller = new ControllerJeu(plateau);
+        if (mode == GameMode.HUMAN_VS_AI) aiPlayers[2] = new MinimaxAI(2, 3);
+        if (mode == GameMode.AI_VS_AI) { aiPlayers[1] = new MinimaxAI(1, 2); aiPlayers[2] = new MinimaxAI(2, 2); }
 
         setLayout(new BorderLayout());
         menuPanel = new JPanel();
@@ -48,14 +80,18 @@ public class GrillePanel extends JPanel {
         menuPanel.add(rejouerButton);
         menuPanel.add(Box.createVerticalStrut(8));
         menuPanel.add(quitterButton);
+        menuPanel.add(Box.createVerticalStrut(20));
+        thinkingLabel.setForeground(Color.WHITE);
+        thinkingLabel.setAlignmentX(Component.CENTER_ALIGNMENT);
+        menuPanel.add(thinkingLabel);
 
         undoButton.addActionListener(e -> undo());
 
-        rejouerButton.addActionListener(e -> window.startGame(mode));
+        rejouerButton.addActionListener(e -> { stopAI(); window.startGame(mode, plateau.getRules()); });
 
-        quitterButton.addActionListener(e -> window.showPanel("HOME"));
+        quitterButton.addActionListener(e -> { stopAI(); window.showPanel("HOME"); });
 
-        BoardCanvas canvas = new BoardCanvas(plateau);
+        canvas = new BoardCanvas(plateau);
         canvas.setBackground(new Color(30, 144, 255));
 
         JPanel boardContainer = new JPanel(new BorderLayout());
@@ -69,6 +105,8 @@ public class GrillePanel extends JPanel {
                 if (plateau.isGameOver()) return;
                 if (mode == GameMode.HUMAN_VS_AI && plateau.getCurrentPlayer() != 1) return;
                 if (mode == GameMode.AI_VS_AI) return;
+                if (thinking != null || aiDelay != null) return; // l'IA n'a pas encore joué
+                stopPondering(); // le coup réel est connu : l'IA reprend ce qu'elle a anticipé
                 controller.playColumn(colIndex);
                 canvas.repaint();
                 if (plateau.isGameOver()) savePartie(canvas);
@@ -90,45 +128,123 @@ public class GrillePanel extends JPanel {
         try {
             DBHelper helper = new DBHelper("localhost", 5432, "puissance4", "postgres", "postgre");
             canvas.putClientProperty("dao", new PartieDAO(helper));
+            // Bibliothèque d'ouvertures tirée des parties enregistrées : chargée une fois, hors EDT
+            OpeningBook book = OpeningBook.shared(helper, plateau.getRules());
+            for (MinimaxAI ai : aiPlayers) if (ai != null) ai.setOpeningBook(book);
+            // Fins de partie résolues : résultats prouvés partagés via situation_prouvee
+            ProvenResults proven = ProvenResults.shared(helper); // écritures terminées à la sortie (App)
+            for (MinimaxAI ai : aiPlayers) if (ai != null) ai.setProvenResults(proven);
         } catch (Exception ex) {
             System.err.println("DB non disponible : " + ex.getMessage());
         }
 
         if (mode == GameMode.AI_VS_AI) startAIVsAITimer(canvas);
-        else runAIMoveIfNeeded(canvas);
+        else { runAIMoveIfNeeded(canvas); startPondering(); }
     }
 
     private void runAIMoveIfNeeded(BoardCanvas canvas) {
         if (plateau.isGameOver()) return;
-        if (mode == GameMode.HUMAN_VS_AI && plateau.getCurrentPlayer() == 2) {
-            // schedule AI move with small delay
-            Timer t = new Timer(300, e -> {
-                MinimaxAI ai = new MinimaxAI(2, 3);
-                int col = ai.chooseColumn(plateau);
-                controller.playColumn(col);
-                canvas.repaint();
-                if (plateau.isGameOver()) savePartie(canvas);
-                ((Timer) e.getSource()).stop();
-            });
-            t.setRepeats(false);
-            t.start();
-        }
+        if (mode == GameMode.HUMAN_VS_AI && plateau.getCurrentPlayer() == 2)
+            scheduleAIMove(canvas, HUMAN_VS_AI_BUDGET, false);
     }
 
     private void startAIVsAITimer(BoardCanvas canvas) {
-        Timer t = new Timer(300, new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                if (plateau.isGameOver()) { ((Timer) e.getSource()).stop(); return; }
-                int me = plateau.getCurrentPlayer();
-                MinimaxAI ai = new MinimaxAI(me, 2);
-                int col = ai.chooseColumn(plateau);
-                controller.playColumn(col);
-                canvas.repaint();
-                if (plateau.isGameOver()) savePartie(canvas);
-            }
+        if (plateau.isGameOver()) return;
+        scheduleAIMove(canvas, AI_VS_AI_BUDGET, true);
+    }
+
+    // petite pause, puis recherche en arrière-plan ; chain = enchaîner le coup suivant (IA contre IA)
+    private void scheduleAIMove(BoardCanvas canvas, Duration budget, boolean chain) {
+        int gen = aiGeneration;
+        aiDelay = new Timer(AI_DELAY_MS, e -> {
+            aiDelay = null;
+            if (gen != aiGeneration || plateau.isGameOver()) return;
+            MinimaxAI ai = aiPlayers[plateau.getCurrentPlayer()];
+            Game snapshot = plateau.copy(); // la recherche ne touche jamais au plateau affiché
+            SearchToken search = new SearchToken();
+            aiSearch = search;
+            thinking = ai;
+            thinkingTimer.start();
+            updateThinkingLabel();
+            aiTask = aiExecutor.submit(() -> {
+                int col;
+                try {
+                    col = ai.chooseColumn(snapshot, budget, search);
+                } catch (RuntimeException ex) {
+                    // sans coup, l'IA garderait la main et bloquerait les boutons : on joue une colonne libre
+                    System.err.println("Recherche de l'IA en échec : " + ex);
+                    ex.printStackTrace();
+                    col = firstFreeColumn(snapshot);
+                }
+                int played = col;
+                SwingUtilities.invokeLater(() -> {
+                    if (gen != aiGeneration) return; // annulé entre-temps
+                    endThinking();
+                    controller.playColumn(played);
+                    canvas.repaint();
+                    if (plateau.isGameOver()) savePartie(canvas);
+                    else if (chain) scheduleAIMove(canvas, budget, true);
+                    else startPondering();
+                });
+            });
         });
-        t.start();
+        aiDelay.setRepeats(false);
+        aiDelay.start();
+    }
+
+    // sur le temps du joueur humain, même exécuteur : la recherche suivante attend sa fin
+    private void startPondering() {
+        if (!PONDER || mode != GameMode.HUMAN_VS_AI) return;
+        if (plateau.isGameOver() || plateau.getCurrentPlayer() != 1 || ponderTask != null) return;
+        MinimaxAI ai = aiPlayers[2];
+        Game snapshot = plateau.copy();
+        SearchToken search = new SearchToken();
+        ponderSearch = search;
+        ponderTask = aiExecutor.submit(() -> ai.ponder(snapshot, search));
+    }
+
+    private void stopPondering() {
+        if (ponderTask == null) return;
+        ponderSearch.cancel(); // avant même son démarrage : la recherche ne l'efface pas
+        ponderTask.cancel(true);
+        ponderTask = null;
+        ponderSearch = null;
+    }
+
+    /** Abandonne le coup de l'IA en attente ou en cours de calcul. */
+    private void cancelAI() {
+        aiGeneration++;
+        stopPondering();
+        if (aiDelay != null) { aiDelay.stop(); aiDelay = null; }
+        if (aiSearch != null) aiSearch.cancel();
+        if (aiTask != null) aiTask.cancel(true);
+        aiTask = null;
+        aiSearch = null;
+        endThinking();
+    }
+
+    /** Fin de partie affichée (Rejouer, Quitter) : plus aucune recherche. */
+    private void stopAI() {
+        cancelAI();
+        aiExecutor.shutdownNow();
+    }
+
+    private static int firstFreeColumn(Game game) {
+        for (int c = 0; c < game.getCols(); c++) if (game.getCell(0, c) == 0) return c;
+        return -1;
+    }
+
+    private void endThinking() {
+        thinking = null;
+        thinkingTimer.stop();
+        thinkingLabel.setText(" ");
+    }
+
+    private void updateThinkingLabel() {
+        MinimaxAI ai = thinking;
+        if (ai == null) return;
+        thinkingLabel.setText(String.format("<html>J%d réfléchit…<br>profondeur %d, %,d nœuds</html>",
+                plateau.getCurrentPlayer(), ai.getDepthReached(), ai.getLiveNodeCount()));
     }
 
     private void savePartie(BoardCanvas canvas) {
@@ -137,8 +253,14 @@ public class GrillePanel extends JPanel {
     }
 
     public void undo() {
-        plateau.undo();
+        cancelAI();
+        controller.undo();
+        // contre l'IA : sa réponse est reprise avec le coup du joueur, qui retrouve la main
+        if (mode == GameMode.HUMAN_VS_AI && plateau.getCurrentPlayer() == 2 && plateau.getMoveCount() > 0)
+            controller.undo();
         repaint();
+        if (mode == GameMode.AI_VS_AI) startAIVsAITimer(canvas);
+        else { runAIMoveIfNeeded(canvas); startPondering(); }
     }
 
     private static class BoardCanvas extends JPanel {
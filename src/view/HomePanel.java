@@ -4,6 +4,7 @@ import java.awt.*;
 import javax.swing.*;
 import model.DBHelper;
 import model.GameMode;
+import model.Rules;
 
 public class HomePanel extends JPanel {
 
@@ -11,6 +12,7 @@ public class HomePanel extends JPanel {
     JRadioButton hvhButton;
     JRadioButton hvaiButton;
     JRadioButton aivaiButton;
+    JComboBox<Rules> rulesBox;
 
     public HomePanel(GameUI window) {
 
@@ -19,6 +21,8 @@ public class HomePanel extends JPanel {
         hvhButton = new JRadioButton("Human vs Human", true);
         hvaiButton = new JRadioButton("Human vs AI");
         aivaiButton = new JRadioButton("AI vs AI");
+        rulesBox = new JComboBox<>(new Rules[]{ Rules.DEFAULT, Rules.CLASSIC, new Rules(7, 8, 4), new Rules(6, 9, 5) });
+        rulesBox.setMaximumSize(rulesBox.getPreferredSize());
 
         ButtonGroup group = new ButtonGroup();
         group.add(hvhButton); group.add(hvaiButton); group.add(aivaiButton);
@@ -32,11 +36,14 @@ public class HomePanel extends JPanel {
         hvhButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         hvaiButton.setAlignmentX(Component.CENTER_ALIGNMENT);
         aivaiButton.setAlignmentX(Component.CENTER_ALIGNMENT);
+        rulesBox.setAlignmentX(Component.CENTER_ALIGNMENT);
         startButton.setAlignmentX(Component.CENTER_ALIGNMENT);
 
         buttonsPanel.add(hvhButton);
         buttonsPanel.add(hvaiButton);
         buttonsPanel.add(aivaiButton);
+        buttonsPanel.add(Box.createVerticalStrut(10));
+        buttonsPanel.add(rulesBox);
         buttonsPanel.add(Box.createVerticalStrut(15));
         buttonsPanel.add(startButton);
         buttonsPanel.add(bdButton);
@@ -47,7 +54,7 @@ public class HomePanel extends JPanel {
             GameMode mode = hvhButton.isSelected() ? GameMode.HUMAN_VS_HUMAN
                     : hvaiButton.isSelected() ? GameMode.HUMAN_VS_AI
                     : GameMode.AI_VS_AI;
-            window.startGame(mode);
+            window.startGame(mode, (Rules) rulesBox.getSelectedItem());
         });
         
         bdButton.addActionListener(e -> {
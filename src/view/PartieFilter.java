@@ -0,0 +1,88 @@
+package view;
+
+import model.GameMode;
+import model.PositionKey;
+import model.Rules;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Critères de recherche de DBViewer, traduits en clause WHERE sur partie (alias p).
+ * Un champ null = pas de filtre. Chaque critère s'appuie sur un index (voir DBHelper).
+ */
+final class PartieFilter {
+    Integer winner;        // 0 = en cours / nul, 1, 2
+    GameMode mode;
+    Integer minCoups, maxCoups;
+    LocalDate from, to;    // bornes incluses, sur created_at
+    String prefix;         // début de séquence, colonnes 1-based
+    Rules rules;           // plateau / alignement (partie.regle)
+    PositionKey position;  // clé canonique : parties passant par cette position
+
+    static final PartieFilter NONE = new PartieFilter();
+
+    boolean isEmpty() {
+        return winner == null && mode == null && minCoups == null && maxCoups == null
+            && from == null && to == null && prefix == null && rules == null && position == null;
+    }
+
+    /** " WHERE ..." (avec un espace en tête), ou "" sans critère. */
+    String where() {
+        List<String> clauses = new ArrayList<>();
+        if (winner != null)   clauses.add("p.winner = ?");
+        if (mode != null)     clauses.add("p.mode = ?");
+        if (minCoups != null) clauses.add("p.nb_coups >= ?");
+        if (maxCoups != null) clauses.add("p.nb_coups <= ?");
+        if (from != null)     clauses.add("p.created_at >= ?");
+        if (to != null)       clauses.add("p.created_at < ?");
+        if (prefix != null)   clauses.add("p.sequence LIKE ?");
+        if (rules != null)    clauses.add("p.regle = ?");
+        if (position != null) {
+            // position finale (situation_id) ou traversée (partie_position, si indexée)
+            clauses.add("p.id IN (" +
+                    "SELECT q.id FROM partie q JOIN situation s ON s.id = q.situation_id WHERE s.pos_key = ? " +
+                    "UNION SELECT pp.partie_id FROM partie_position pp " +
+                    "JOIN situation s ON s.id = pp.situation_id WHERE s.pos_key = ?)");
+        }
+        return clauses.isEmpty() ? "" : " WHERE " + String.join(" AND ", clauses);
+    }
+
+    /** Lie les paramètres de where() à partir de l'indice i ; retourne l'indice suivant. */
+    int bind(PreparedStatement ps, int i) throws SQLException {
+        if (winner != null)   ps.setInt(i++, winner);
+        if (mode != null)     ps.setString(i++, mode.name());
+        if (minCoups != null) ps.setInt(i++, minCoups);
+        if (maxCoups != null) ps.setInt(i++, maxCoups);
+        if (from != null)     ps.setTimestamp(i++, Timestamp.valueOf(from.atStartOfDay()));
+        if (to != null)       ps.setTimestamp(i++, Timestamp.valueOf(to.plusDays(1).atStartOfDay()));
+        if (prefix != null)   ps.setString(i++, prefix + "%"); // chiffres uniquement, rien à échapper
+        if (rules != null)    ps.setString(i++, rules.code());
+        if (position != null) {
+            byte[] key = position.toBytes();
+            ps.setBytes(i++, key);
+            ps.setBytes(i++, key);
+        }
+        return i;
+    }
+
+    /** Résumé pour la barre d'état. */
+    @Override
+    public String toString() {
+        List<String> parts = new ArrayList<>();
+        if (winner != null)   parts.add("winner=" + winner);
+        if (mode != null)     parts.add(mode.name());
+        if (minCoups != null || maxCoups != null)
+            parts.add("coups " + (minCoups != null ? minCoups : "") + ".." + (maxCoups != null ? maxCoups : ""));
+        if (from != null || to != null)
+            parts.add("du " + (from != null ? from : "…") + " au " + (to != null ? to : "…"));
+        if (prefix != null)   parts.add("début " + prefix);
+        if (rules != null)    parts.add(rules.code());
+        if (position != null) parts.add("position " + position);
+        return String.join(", ", parts);
+    }
+}
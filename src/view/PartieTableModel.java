@@ -0,0 +1,281 @@
+package view;
+
+import model.DBHelper;
+import model.Rules;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Modèle virtuel de la table partie (id décroissant) pour DBViewer.
+ *
+ * Les critères de PartieFilter sont appliqués en SQL. Le nombre de lignes vient d'un
+ * count(*) borné à COUNT_CAP (la liste s'allonge ensuite page par page) ; les lignes ne sont lues que par pages de
+ * PAGE_SIZE, quand la JTable les affiche, sur un thread de fond. Seules les MAX_PAGES
+ * dernières pages affichées restent en mémoire. Chaque page est lue par pagination
+ * par clé (id < dernier id de la page précédente, ou id > premier id de la suivante),
+ * donc en un parcours d'index borné quelle que soit sa position ; un saut direct loin
+ * de toute page connue cherche d'abord son premier id par OFFSET sur l'index seul.
+ *
+ * Tout l'état est modifié sur l'EDT ; le chargeur ne fait que lire bounds et pending.
+ */
+class PartieTableModel extends AbstractTableModel {
+    static final int PAGE_SIZE = 200;
+    private static final int MAX_PAGES = 50;
+    private static final int MAX_PENDING = 8; // au-delà, les demandes les plus anciennes sont oubliées
+
+    private static final String[] COLUMNS = {"id", "coups", "winner", "mode", "situation_id", "regle"};
+    private static final int COUNT_CAP = 100_000; // au-delà, la liste s'allonge au fil du défilement
+
+    private static final String SELECT = "SELECT p.id, p.sequence, p.winner, p.mode, p.situation_id, p.regle FROM partie p";
+
+    private final DBHelper dbHelper;
+    private final Consumer<String> status;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "dbviewer-loader");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private int rowCount;
+    private boolean capped;                             // rowCount n'est qu'un minimum
+    private volatile PartieFilter filter = PartieFilter.NONE; // lu par le chargeur
+    private int generation; // incrémentée par refresh() : les pages en vol sont ignorées
+    private final Map<Integer, Object[][]> pages = new LinkedHashMap<Integer, Object[][]>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, Object[][]> eldest) {
+            return size() > MAX_PAGES;
+        }
+    };
+    private final Set<Integer> loading = new HashSet<>();
+    private boolean dropped; // une demande a été oubliée : réafficher une fois les chargements finis
+    private final Deque<int[]> pending = new ArrayDeque<>(); // {page, generation}, EDT → chargeur, sous verrou
+    // premier / dernier id de chaque page déjà lue (gardés même quand la page est évincée)
+    private final Map<Integer, long[]> bounds = new ConcurrentHashMap<>();
+
+    PartieTableModel(DBHelper dbHelper, Consumer<String> status) {
+        this.dbHelper = dbHelper;
+        this.status = status;
+    }
+
+    // ══════════════════════════════════════════════════════════
+    // TableModel
+    // ══════════════════════════════════════════════════════════
+
+    @Override public int getRowCount() { return rowCount; }
+    @Override public int getColumnCount() { return COLUMNS.length; }
+    @Override public String getColumnName(int c) { return COLUMNS[c]; }
+    @Override public boolean isCellEditable(int r, int c) { return false; }
+
+    @Override
+    public Object getValueAt(int row, int col) {
+        Object[] r = rowIfLoaded(row);
+        if (r == null) return col == 1 ? "…" : null;
+        if (col == 1) {
+            String seq = (String) r[1];
+            int nbCoups = (seq != null) ? seq.replaceAll("\\D", "").length() : 0;
+            return nbCoups + " coups  [" + (seq != null ? seq : "") + "]";
+        }
+        return r[col];
+    }
+
+    /** Séquence de la ligne, ou null si sa page n'est pas (encore) chargée. */
+    String getSequence(int row) {
+        Object[] r = rowIfLoaded(row);
+        return r != null ? (String) r[1] : null;
+    }
+
+    /** Règles de la partie de la ligne (9×9 si la page n'est pas chargée ou la valeur illisible). */
+    Rules getRules(int row) {
+        Object[] r = rowIfLoaded(row);
+        if (r == null || r[5] == null) return Rules.DEFAULT;
+        try {
+            return Rules.parse((String) r[5]);
+        } catch (IllegalArgumentException ex) {
+            return Rules.DEFAULT;
+        }
+    }
+
+    // demande la page si elle manque
+    private Object[] rowIfLoaded(int row) {
+        int page = row / PAGE_SIZE;
+        Object[][] p = pages.get(page);
+        if (p == null) { request(page); return null; }
+        int i = row % PAGE_SIZE;
+        return i < p.length ? p[i] : null;
+    }
+
+    // ══════════════════════════════════════════════════════════
+    // Chargement
+    // ══════════════════════════════════════════════════════════
+
+    /** Applique des critères de recherche (côté serveur) et recharge. */
+    void setFilter(PartieFilter filter) {
+        this.filter = filter;
+        refresh();
+    }
+
+    PartieFilter getFilter() { return filter; }
+
+    /** Oublie tout et relit le nombre de parties ; les pages suivent à l'affichage. */
+    void refresh() {
+        generation++;
+        pages.clear();
+        loading.clear();
+        dropped = false;
+        bounds.clear();
+        synchronized (pending) { pending.clear(); }
+        rowCount = 0;
+        fireTableDataChanged();
+        int gen = generation;
+        PartieFilter f = filter;
+        status.accept("Chargement...");
+        loader.execute(() -> {
+            // comptage borné : un count(*) exact sur des millions de lignes prendrait des secondes
+            try (Connection c = dbHelper.getConnection();
+                 PreparedStatement ps = c.prepareStatement(
+                         "SELECT count(*) FROM (SELECT 1 FROM partie p" + f.where() + " LIMIT ?) t")) {
+                int i = f.bind(ps, 1);
+                ps.setInt(i, COUNT_CAP);
+                int n;
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    n = rs.getInt(1);
+                }
+                SwingUtilities.invokeLater(() -> {
+                    if (gen != generation) return;
+                    rowCount = n;
+                    capped = n >= COUNT_CAP;
+                    fireTableDataChanged();
+                    String found = (capped ? n + "+" : Integer.toString(n)) + " partie(s)";
+                    status.accept(f.isEmpty() ? found + " en base" : found + " — " + f);
+                });
+            } catch (SQLException ex) {
+                SwingUtilities.invokeLater(() -> status.accept("Erreur DB : " + ex.getMessage()));
+            }
+        });
+    }
+
+    void close() {
+        loader.shutdownNow();
+    }
+
+    private void request(int page) {
+        if (!loading.add(page)) return;
+        synchronized (pending) {
+            pending.addLast(new int[]{ page, generation });
+            if (pending.size() > MAX_PENDING) {
+                loading.remove(pending.pollFirst()[0]); // redemandée au prochain affichage si encore visible
+                dropped = true;
+            }
+        }
+        loader.execute(this::loadNext);
+    }
+
+    // thread de fond : la page demandée en dernier d'abord (celle que l'on regarde)
+    private void loadNext() {
+        int[] req;
+        synchronized (pending) { req = pending.pollLast(); }
+        if (req == null) return;
+        int page = req[0], gen = req[1];
+        try {
+            Object[][] rows = fetch(page);
+            SwingUtilities.invokeLater(() -> {
+                if (gen != generation) return;
+                loading.remove(page);
+                pages.put(page, rows);
+                if (rows.length > 0)
+                    bounds.put(page, new long[]{ ((Number) rows[0][0]).longValue(),
+                                                 ((Number) rows[rows.length - 1][0]).longValue() });
+                int first = page * PAGE_SIZE;
+                int last = Math.min(rowCount, first + PAGE_SIZE) - 1;
+                if (last >= first) fireTableRowsUpdated(first, last);
+                // dernière page pleine d'un comptage borné : il y a peut-être une suite
+                if (capped && last == rowCount - 1 && rows.length == PAGE_SIZE) {
+                    rowCount += PAGE_SIZE;
+                    fireTableRowsInserted(last + 1, rowCount - 1);
+                } else if (capped && last == rowCount - 1 && first + rows.length < rowCount) {
+                    int end = first + rows.length, oldCount = rowCount; // fin réelle atteinte
+                    rowCount = end;
+                    capped = false;
+                    fireTableRowsDeleted(end, oldCount - 1);
+                }
+                if (dropped && loading.isEmpty() && rowCount > 0) {
+                    dropped = false;
+                    fireTableRowsUpdated(0, rowCount - 1); // ne repeint que la zone visible
+                }
+            });
+        } catch (SQLException ex) {
+            SwingUtilities.invokeLater(() -> {
+                if (gen == generation) loading.remove(page);
+                status.accept("Erreur DB : " + ex.getMessage());
+            });
+        }
+    }
+
+    private Object[][] fetch(int page) throws SQLException {
+        PartieFilter f = filter;
+        long[] prev = bounds.get(page - 1), next = bounds.get(page + 1);
+        List<Object[]> rows = new ArrayList<>(PAGE_SIZE);
+        try (Connection c = dbHelper.getConnection()) {
+            if (page == 0) {
+                query(c, f, null, "DESC", null, rows);
+            } else if (prev != null) {
+                query(c, f, "p.id < ?", "DESC", prev[1], rows);
+            } else if (next != null) {
+                query(c, f, "p.id > ?", "ASC", next[0], rows);
+                Collections.reverse(rows);
+            } else {
+                // saut loin de toute page connue : premier id de la page par l'index seul
+                Long firstId = null;
+                try (PreparedStatement ps = c.prepareStatement(
+                        "SELECT p.id FROM partie p" + f.where() + " ORDER BY p.id DESC OFFSET ? LIMIT 1")) {
+                    int i = f.bind(ps, 1);
+                    ps.setLong(i, (long) page * PAGE_SIZE);
+                    try (ResultSet rs = ps.executeQuery()) { if (rs.next()) firstId = rs.getLong(1); }
+                }
+                if (firstId != null) query(c, f, "p.id <= ?", "DESC", firstId, rows);
+            }
+        }
+        return rows.toArray(new Object[0][]);
+    }
+
+    // une page : critères du filtre + borne de pagination (keyset), triée par id
+    private static void query(Connection c, PartieFilter f, String keyset, String order, Long key,
+                              List<Object[]> out) throws SQLException {
+        String where = f.where();
+        if (keyset != null) where += (where.isEmpty() ? " WHERE " : " AND ") + keyset;
+        try (PreparedStatement ps = c.prepareStatement(SELECT + where + " ORDER BY p.id " + order + " LIMIT ?")) {
+            int i = f.bind(ps, 1);
+            if (key != null) ps.setLong(i++, key);
+            ps.setInt(i, PAGE_SIZE);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) out.add(new Object[]{
+                    rs.getObject("id"),
+                    rs.getString("sequence"),
+                    rs.getObject("winner"),
+                    rs.getString("mode"),
+                    rs.getObject("situation_id"),
+                    rs.getString("regle")
+                });
+            }
+        }
+    }
+}